@@ -2,7 +2,6 @@ package net.fliuxx.lavaRise;
 
 import net.fliuxx.lavaRise.commands.LavaRiseCommand;
 import net.fliuxx.lavaRise.listeners.GUIListener;
-import net.fliuxx.lavaRise.listeners.PlayerListener;
 import net.fliuxx.lavaRise.managers.*;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -20,8 +19,9 @@ public final class LavaRise extends JavaPlugin {
     private GameManager gameManager;
     private WorldManager worldManager;
     private PlayerManager playerManager;
-    private LavaManager lavaManager;
     private ArenaManager arenaManager;
+    
+    private GUIListener guiListener;
 
     @Override
     public void onEnable() {
@@ -32,32 +32,35 @@ public final class LavaRise extends JavaPlugin {
         this.arenaManager = new ArenaManager(this);
         this.worldManager = new WorldManager(this);
         this.playerManager = new PlayerManager(this);
-        this.lavaManager = new LavaManager(this);
         this.gameManager = new GameManager(this);
         
         // Load configuration
         configManager.loadConfigs();
         
+        // Copies of the template left behind by games a crash interrupted
+        worldManager.deleteLeftoverCopies();
+        
         // Register commands
         getCommand("lavarise").setExecutor(new LavaRiseCommand(this));
         
-        // Register listeners
-        getServer().getPluginManager().registerEvents(new PlayerListener(this), this);
-        getServer().getPluginManager().registerEvents(new GUIListener(this), this);
+        // Listeners register themselves: the game listeners while a game runs, the GUI listener while the GUI is open
+        this.guiListener = new GUIListener(this);
         
         getLogger().info("LavaRise plugin has been enabled!");
     }
 
     @Override
     public void onDisable() {
-        // Stop any running games
-        if (gameManager != null && gameManager.isGameActive()) {
-            gameManager.stopGame();
+        // Stop any running games, which also releases their worlds
+        if (gameManager != null) {
+            gameManager.stopAllGames();
         }
         
-        // Clean up worlds
-        if (worldManager != null) {
-            worldManager.cleanup();
+        // Restore the last arena before the server shuts down
+        if (arenaManager != null) {
+            arenaManager.finishPendingRollback();
+            arenaManager.closeArenaStore();
+            arenaManager.shutdownSiteScorer();
         }
         
         getLogger().info("LavaRise plugin has been disabled!");
@@ -84,11 +87,11 @@ public final class LavaRise extends JavaPlugin {
         return playerManager;
     }
     
-    public LavaManager getLavaManager() {
-        return lavaManager;
-    }
-    
     public ArenaManager getArenaManager() {
         return arenaManager;
     }
+    
+    public GUIListener getGuiListener() {
+        return guiListener;
+    }
 }
@@ -2,8 +2,10 @@ package net.fliuxx.lavaRise.commands;
 
 import net.fliuxx.lavaRise.LavaRise;
 import net.fliuxx.lavaRise.gui.AdminGUI;
+import net.fliuxx.lavaRise.managers.GameSession;
+import net.fliuxx.lavaRise.utils.Arena;
+import net.fliuxx.lavaRise.utils.LavaMode;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -41,13 +43,13 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
                 return handleStart(sender);
                 
             case "stop":
-                return handleStop(sender);
+                return handleStop(sender, args);
                 
             case "gui":
                 return handleGUI(sender);
                 
             case "spectate":
-                return handleSpectate(sender);
+                return handleSpectate(sender, args);
                 
             case "reload":
                 return handleReload(sender);
@@ -58,84 +60,77 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
             case "arenas":
                 return handleArenas(sender);
                 
+            case "lavamode":
+                return handleLavaMode(sender, args);
+                
             case "help":
                 sendHelp(sender);
                 return true;
                 
             default:
-                sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                    plugin.getConfigManager().getMessage("general.prefix") + 
-                    plugin.getConfigManager().getMessage("general.unknown_command")));
+                sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.unknown_command"));
                 return true;
         }
     }
     
     private boolean handleStart(CommandSender sender) {
         if (!sender.hasPermission("lavarise.start")) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
-        if (plugin.getGameManager().isGameActive()) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("game.already_running")));
+        if (!plugin.getGameManager().canStartGame()) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.max_games_running"));
             return true;
         }
         
         if (plugin.getGameManager().startGame()) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("game.started")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.started"));
         } else {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("game.not_enough_players", 
-                    "%min_players%", String.valueOf(plugin.getConfigManager().getMinPlayers()))));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.not_enough_players", 
+                "%min_players%", String.valueOf(plugin.getConfigManager().getMinPlayers())));
         }
         
         return true;
     }
     
-    private boolean handleStop(CommandSender sender) {
+    private boolean handleStop(CommandSender sender, String[] args) {
         if (!sender.hasPermission("lavarise.stop")) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
         if (!plugin.getGameManager().isGameActive()) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("game.not_running")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.not_running"));
             return true;
         }
         
-        plugin.getGameManager().stopGame();
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("general.prefix") + 
-            plugin.getConfigManager().getMessage("game.game_ended")));
+        if (args.length >= 2) {
+            GameSession session = plugin.getGameManager().getSession(args[1]);
+            if (session == null) {
+                sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.not_running"));
+                return true;
+            }
+            plugin.getGameManager().stopGame(session);
+        } else {
+            // Without an arena every running game is stopped
+            plugin.getGameManager().stopAllGames();
+        }
+        sender.sendMessage(plugin.getConfigManager().formatPrefixed("game.game_ended"));
         
         return true;
     }
     
     private boolean handleGUI(CommandSender sender) {
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.player_only")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.player_only"));
             return true;
         }
         
         Player player = (Player) sender;
         
         if (!player.hasPermission("lavarise.gui")) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
@@ -145,79 +140,78 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
         return true;
     }
     
-    private boolean handleSpectate(CommandSender sender) {
+    private boolean handleSpectate(CommandSender sender, String[] args) {
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.player_only")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.player_only"));
             return true;
         }
         
         Player player = (Player) sender;
         
         if (!player.hasPermission("lavarise.spectate")) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
-        plugin.getGameManager().addSpectator(player);
+        GameSession session = args.length >= 2 ? 
+            plugin.getGameManager().getSession(args[1]) : 
+            plugin.getGameManager().getDefaultSession();
+        if (session == null) {
+            player.sendMessage(plugin.getConfigManager().format("game.not_running"));
+            return true;
+        }
+        
+        plugin.getGameManager().addSpectator(player, session);
         
         return true;
     }
     
     private boolean handleReload(CommandSender sender) {
         if (!sender.hasPermission("lavarise.reload")) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
-        plugin.getConfigManager().reloadConfigs();
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("general.prefix") + 
-            plugin.getConfigManager().getMessage("general.config_reloaded")));
+        if (plugin.getConfigManager().reloadConfigs()) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.config_reloaded"));
+        } else {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.config_invalid"));
+        }
         
         return true;
     }
     
     private boolean handleSetupWorld(CommandSender sender) {
         if (!(sender instanceof Player)) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.player_only")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.player_only"));
             return true;
         }
         
         Player player = (Player) sender;
         
         if (!player.hasPermission("lavarise.admin")) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
         if (plugin.getGameManager().isGameActive()) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                "&cCannot setup arenas while a game is running!"));
+            player.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.setup_game_running"));
             return true;
         }
         
-        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("general.prefix") + 
-            "&eStarting arena setup process..."));
+        // Restores still load chunks of the world and read the snapshots that setup deletes
+        if (plugin.getArenaManager().isCleanupRunning()) {
+            player.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.setup_restoring"));
+            return true;
+        }
+        
+        player.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.setup_starting"));
         
         // Start arena setup on main thread (chunk operations must be synchronous)
         Bukkit.getScheduler().runTask(plugin, () -> {
             boolean success = plugin.getArenaManager().setupNewArenas(player);
             if (!success) {
-                player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                    plugin.getConfigManager().getMessage("general.prefix") + 
-                    "&cFailed to setup arenas!"));
+                player.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.setup_failed"));
             }
         });
         
@@ -226,43 +220,65 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
     
     private boolean handleArenas(CommandSender sender) {
         if (!sender.hasPermission("lavarise.admin")) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + 
-                plugin.getConfigManager().getMessage("general.no_permission")));
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
             return true;
         }
         
         int available = plugin.getArenaManager().getAvailableArenasCount();
         int used = plugin.getArenaManager().getUsedArenasCount();
         
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("general.prefix") + 
-            "&eArena Status:"));
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            "&7Available: &a" + available));
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            "&7Used: &c" + used));
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            "&7Total: &f" + (available + used)));
+        sender.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.status_header"));
+        sender.sendMessage(plugin.getConfigManager().format("arenas.status_available", "%count%", String.valueOf(available)));
+        sender.sendMessage(plugin.getConfigManager().format("arenas.status_used", "%count%", String.valueOf(used)));
+        sender.sendMessage(plugin.getConfigManager().format("arenas.status_total", "%count%", String.valueOf(available + used)));
         
         if (available <= 2) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                "&cWarning: Low arena count! Use /lavarise setupworld to create more."));
+            sender.sendMessage(plugin.getConfigManager().format("arenas.low_count"));
         }
         
         return true;
     }
     
+    private boolean handleLavaMode(CommandSender sender, String[] args) {
+        if (!sender.hasPermission("lavarise.admin")) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
+            return true;
+        }
+        
+        if (args.length < 3) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.lava_mode_usage"));
+            return true;
+        }
+        
+        Arena arena = plugin.getArenaManager().findArena(args[1]);
+        if (arena == null) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.not_found", "%arena%", args[1]));
+            return true;
+        }
+        
+        LavaMode lavaMode;
+        try {
+            lavaMode = LavaMode.valueOf(args[2].toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.unknown_lava_mode", "%mode%", args[2]));
+            return true;
+        }
+        
+        plugin.getArenaManager().setArenaLavaMode(arena, lavaMode);
+        sender.sendMessage(plugin.getConfigManager().formatPrefixed("arenas.lava_mode_set", 
+            "%arena%", arena.getId(), "%mode%", lavaMode.name().toLowerCase()));
+        
+        return true;
+    }
+    
     private void sendHelp(CommandSender sender) {
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("help.header")));
+        sender.sendMessage(plugin.getConfigManager().format("help.header"));
         
-        for (String line : plugin.getConfigManager().getMessage("help.commands").split("\n")) {
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', line));
+        for (String line : plugin.getConfigManager().format("help.commands").split("\n")) {
+            sender.sendMessage(line);
         }
         
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("help.footer")));
+        sender.sendMessage(plugin.getConfigManager().format("help.footer"));
     }
     
     @Override
@@ -270,7 +286,7 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
         List<String> completions = new ArrayList<>();
         
         if (args.length == 1) {
-            List<String> subCommands = Arrays.asList("start", "stop", "gui", "spectate", "reload", "setupworld", "arenas", "help");
+            List<String> subCommands = Arrays.asList("start", "stop", "gui", "spectate", "reload", "setupworld", "arenas", "lavamode", "help");
             String partial = args[0].toLowerCase();
             
             for (String subCommand : subCommands) {
@@ -278,6 +294,27 @@ public class LavaRiseCommand implements CommandExecutor, TabCompleter {
                     completions.add(subCommand);
                 }
             }
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("stop") || args[0].equalsIgnoreCase("spectate"))) {
+            String partial = args[1].toLowerCase();
+            
+            for (String arenaId : plugin.getGameManager().getSessionIds()) {
+                if (arenaId.toLowerCase().startsWith(partial)) {
+                    completions.add(arenaId);
+                }
+            }
+        } else if (args[0].equalsIgnoreCase("lavamode") && sender.hasPermission("lavarise.admin")) {
+            List<String> options = args.length == 2 ? 
+                plugin.getArenaManager().getArenaIds() : 
+                Arrays.asList("blocks", "logical");
+            String partial = args[args.length - 1].toLowerCase();
+            
+            if (args.length <= 3) {
+                for (String option : options) {
+                    if (option.toLowerCase().startsWith(partial)) {
+                        completions.add(option);
+                    }
+                }
+            }
         }
         
         return completions;
@@ -1,15 +1,16 @@
 package net.fliuxx.lavaRise.gui;
 
 import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.managers.GameSession;
 import net.fliuxx.lavaRise.utils.GameState;
 import org.bukkit.Bukkit;
-import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -25,8 +26,7 @@ public class AdminGUI {
     
     public AdminGUI(LavaRise plugin) {
         this.plugin = plugin;
-        this.title = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("gui.admin_panel"));
+        this.title = plugin.getConfigManager().format("gui.admin_panel");
     }
     
     public void openGUI(Player player) {
@@ -34,20 +34,20 @@ public class AdminGUI {
         
         // Start Game button
         ItemStack startGame = createItem(Material.EMERALD_BLOCK, 
-            plugin.getConfigManager().getMessage("gui.start_game"),
-            plugin.getConfigManager().getMessage("gui.start_game_desc"));
+            plugin.getConfigManager().format("gui.start_game"),
+            plugin.getConfigManager().format("gui.start_game_desc"));
         gui.setItem(10, startGame);
         
         // Stop Game button
         ItemStack stopGame = createItem(Material.REDSTONE_BLOCK, 
-            plugin.getConfigManager().getMessage("gui.stop_game"),
-            plugin.getConfigManager().getMessage("gui.stop_game_desc"));
+            plugin.getConfigManager().format("gui.stop_game"),
+            plugin.getConfigManager().format("gui.stop_game_desc"));
         gui.setItem(12, stopGame);
         
         // Reload Config button
         ItemStack reloadConfig = createItem(Material.COMMAND_BLOCK, 
-            plugin.getConfigManager().getMessage("gui.reload_config"),
-            plugin.getConfigManager().getMessage("gui.reload_config_desc"));
+            plugin.getConfigManager().format("gui.reload_config"),
+            plugin.getConfigManager().format("gui.reload_config_desc"));
         gui.setItem(14, reloadConfig);
         
         // Game Status
@@ -61,20 +61,22 @@ public class AdminGUI {
         // Fill empty slots with glass panes
         fillEmptySlots(gui);
         
-        player.openInventory(gui);
+        // Clicks are only listened to while the GUI is open
+        plugin.getGuiListener().open(player, gui);
     }
     
+    /**
+     * Builds a GUI item; the name and lore are messages that were already formatted
+     */
     private ItemStack createItem(Material material, String name, String... lore) {
         ItemStack item = new ItemStack(material);
         ItemMeta meta = item.getItemMeta();
         
         if (meta != null) {
-            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&', name));
+            meta.setDisplayName(name);
             
             if (lore.length > 0) {
-                List<String> loreList = Arrays.asList(lore);
-                loreList.replaceAll(line -> ChatColor.translateAlternateColorCodes('&', line));
-                meta.setLore(loreList);
+                meta.setLore(Arrays.asList(lore));
             }
             
             item.setItemMeta(meta);
@@ -84,54 +86,69 @@ public class AdminGUI {
     }
     
     private ItemStack createGameStatusItem() {
-        GameState state = plugin.getGameManager().getCurrentState();
-        Material material;
-        String statusText;
-        
-        switch (state) {
-            case WAITING:
-                material = Material.GRAY_WOOL;
-                statusText = plugin.getConfigManager().getMessage("status.waiting");
-                break;
-            case STARTING:
-                material = Material.YELLOW_WOOL;
-                statusText = plugin.getConfigManager().getMessage("status.countdown", "%time%", "...");
-                break;
-            case ACTIVE:
-            case PVP_ENABLED:
-                material = Material.GREEN_WOOL;
-                statusText = plugin.getConfigManager().getMessage("status.active");
-                break;
-            default:
-                material = Material.RED_WOOL;
-                statusText = "Unknown";
-                break;
+        Material material = Material.GRAY_WOOL;
+        List<String> lore = new ArrayList<>();
+        lore.add(plugin.getConfigManager().format("gui.game_status_desc"));
+        lore.add(plugin.getConfigManager().format("gui.games_running", 
+            "%count%", String.valueOf(plugin.getGameManager().getSessions().size()), 
+            "%max%", String.valueOf(plugin.getConfigManager().getMaxConcurrentGames())));
+        
+        if (!plugin.getGameManager().isGameActive()) {
+            lore.add(plugin.getConfigManager().format("gui.status", "%status%", plugin.getConfigManager().format("status.waiting")));
         }
         
-        String pvpStatus = plugin.getGameManager().isPvpEnabled() ? 
-            plugin.getConfigManager().getMessage("status.pvp_enabled") : 
-            plugin.getConfigManager().getMessage("status.pvp_disabled");
+        // One line per game, the wool shows the most advanced one
+        for (GameSession session : plugin.getGameManager().getSessions()) {
+            GameState state = session.getCurrentState();
+            String statusText;
+            
+            switch (state) {
+                case STARTING:
+                    if (material == Material.GRAY_WOOL) {
+                        material = Material.YELLOW_WOOL;
+                    }
+                    statusText = plugin.getConfigManager().format("status.countdown", "%time%", "...");
+                    break;
+                case ACTIVE:
+                case PVP_ENABLED:
+                    material = Material.GREEN_WOOL;
+                    statusText = plugin.getConfigManager().format("status.active");
+                    break;
+                default:
+                    statusText = plugin.getConfigManager().format("status.other", "%state%", state.name().toLowerCase());
+                    break;
+            }
+            
+            String pvpStatus = session.isPvpEnabled() ? 
+                plugin.getConfigManager().format("status.pvp_enabled") : 
+                plugin.getConfigManager().format("status.pvp_disabled");
+            
+            lore.add(plugin.getConfigManager().format("gui.game_line", 
+                "%arena%", session.getArena().getId(), "%status%", statusText));
+            lore.add(plugin.getConfigManager().format("gui.game_players", 
+                "%alive%", String.valueOf(session.getAlivePlayerCount()), 
+                "%spectators%", String.valueOf(session.getSpectatorCount()), 
+                "%pvp%", pvpStatus));
+            lore.add(plugin.getConfigManager().format("gui.game_lava", 
+                "%level%", String.valueOf(session.getLavaManager().getCurrentLevel()), 
+                "%backlog%", String.valueOf(session.getLavaManager().getPendingBlocks())));
+        }
         
         return createItem(material, 
-            plugin.getConfigManager().getMessage("gui.game_status"),
-            plugin.getConfigManager().getMessage("gui.game_status_desc"),
-            "&7Status: " + statusText,
-            "&7Players Alive: &f" + plugin.getGameManager().getAlivePlayerCount(),
-            "&7Spectators: &f" + plugin.getGameManager().getSpectators().size(),
-            "&7PvP: " + pvpStatus,
-            "&7Lava Level: &f" + plugin.getLavaManager().getCurrentLevel());
+            plugin.getConfigManager().format("gui.game_status"),
+            lore.toArray(new String[0]));
     }
     
     private ItemStack createPlayerListItem() {
         int aliveCount = plugin.getGameManager().getAlivePlayerCount();
-        int spectatorCount = plugin.getGameManager().getSpectators().size();
+        int spectatorCount = plugin.getGameManager().getSpectatorCount();
         
         return createItem(Material.PLAYER_HEAD, 
-            plugin.getConfigManager().getMessage("gui.player_list"),
-            plugin.getConfigManager().getMessage("gui.player_list_desc"),
-            "&7Alive Players: &a" + aliveCount,
-            "&7Spectators: &e" + spectatorCount,
-            "&7Total Online: &f" + Bukkit.getOnlinePlayers().size());
+            plugin.getConfigManager().format("gui.player_list"),
+            plugin.getConfigManager().format("gui.player_list_desc"),
+            plugin.getConfigManager().format("gui.alive_players", "%count%", String.valueOf(aliveCount)),
+            plugin.getConfigManager().format("gui.spectators", "%count%", String.valueOf(spectatorCount)),
+            plugin.getConfigManager().format("gui.total_online", "%count%", String.valueOf(Bukkit.getOnlinePlayers().size())));
     }
     
     private void fillEmptySlots(Inventory gui) {
@@ -170,62 +187,47 @@ public class AdminGUI {
         switch (slot) {
             case 10: // Start Game
                 if (player.hasPermission("lavarise.start")) {
-                    if (plugin.getGameManager().isGameActive()) {
-                        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                            plugin.getConfigManager().getMessage("general.prefix") + 
-                            plugin.getConfigManager().getMessage("game.already_running")));
+                    if (!plugin.getGameManager().canStartGame()) {
+                        player.sendMessage(plugin.getConfigManager().formatPrefixed("game.max_games_running"));
                     } else {
                         if (plugin.getGameManager().startGame()) {
-                            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                                plugin.getConfigManager().getMessage("general.prefix") + 
-                                plugin.getConfigManager().getMessage("game.started")));
+                            player.sendMessage(plugin.getConfigManager().formatPrefixed("game.started"));
                             player.closeInventory();
                         } else {
-                            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                                plugin.getConfigManager().getMessage("general.prefix") + 
-                                plugin.getConfigManager().getMessage("game.not_enough_players", 
-                                    "%min_players%", String.valueOf(plugin.getConfigManager().getMinPlayers()))));
+                            player.sendMessage(plugin.getConfigManager().formatPrefixed("game.not_enough_players", 
+                                "%min_players%", String.valueOf(plugin.getConfigManager().getMinPlayers())));
                         }
                     }
                 } else {
-                    player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                        plugin.getConfigManager().getMessage("general.prefix") + 
-                        plugin.getConfigManager().getMessage("general.no_permission")));
+                    player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
                 }
                 break;
                 
-            case 12: // Stop Game
+            case 12: // Stop all games
                 if (player.hasPermission("lavarise.stop")) {
                     if (plugin.getGameManager().isGameActive()) {
-                        plugin.getGameManager().stopGame();
-                        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                            plugin.getConfigManager().getMessage("general.prefix") + 
-                            plugin.getConfigManager().getMessage("game.game_ended")));
+                        plugin.getGameManager().stopAllGames();
+                        player.sendMessage(plugin.getConfigManager().formatPrefixed("game.game_ended"));
                         player.closeInventory();
                     } else {
-                        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                            plugin.getConfigManager().getMessage("general.prefix") + 
-                            plugin.getConfigManager().getMessage("game.not_running")));
+                        player.sendMessage(plugin.getConfigManager().formatPrefixed("game.not_running"));
                     }
                 } else {
-                    player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                        plugin.getConfigManager().getMessage("general.prefix") + 
-                        plugin.getConfigManager().getMessage("general.no_permission")));
+                    player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
                 }
                 break;
                 
             case 14: // Reload Config
                 if (player.hasPermission("lavarise.reload")) {
-                    plugin.getConfigManager().reloadConfigs();
-                    player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                        plugin.getConfigManager().getMessage("general.prefix") + 
-                        plugin.getConfigManager().getMessage("general.config_reloaded")));
+                    if (plugin.getConfigManager().reloadConfigs()) {
+                        player.sendMessage(plugin.getConfigManager().formatPrefixed("general.config_reloaded"));
+                    } else {
+                        player.sendMessage(plugin.getConfigManager().formatPrefixed("general.config_invalid"));
+                    }
                     // Refresh GUI
                     openGUI(player);
                 } else {
-                    player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                        plugin.getConfigManager().getMessage("general.prefix") + 
-                        plugin.getConfigManager().getMessage("general.no_permission")));
+                    player.sendMessage(plugin.getConfigManager().formatPrefixed("general.no_permission"));
                 }
                 break;
                 
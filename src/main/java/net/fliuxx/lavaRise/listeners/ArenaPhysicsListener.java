@@ -0,0 +1,98 @@
+package net.fliuxx.lavaRise.listeners;
+
+import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.managers.GameSession;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockIgniteEvent;
+
+/**
+ * Suppresses lava side effects inside the running arenas when lava is placed without physics,
+ * and journals the ones that do happen so the arena rollback undoes them.
+ * Registered only while a game runs; the session lookup by block rejects other worlds first.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaPhysicsListener implements Listener {
+    
+    private final LavaRise plugin;
+    
+    public ArenaPhysicsListener(LavaRise plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        // Stop lava from flowing out of the static layers
+        if (event.getBlock().getType() != Material.LAVA) return;
+        
+        GameSession session = plugin.getGameManager().getSession(event.getBlock());
+        if (session == null || !session.getLavaManager().isStaticLavaArea(event.getBlock())) return;
+        
+        event.setCancelled(true);
+        session.getLavaManager().recordSuppressedUpdate();
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockIgnite(BlockIgniteEvent event) {
+        // Stop lava from setting the surroundings on fire
+        if (event.getCause() != BlockIgniteEvent.IgniteCause.LAVA) return;
+        
+        GameSession session = plugin.getGameManager().getSession(event.getBlock());
+        if (session == null || !session.getLavaManager().isStaticLavaArea(event.getBlock())) return;
+        
+        event.setCancelled(true);
+        session.getLavaManager().recordSuppressedUpdate();
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        // Stop lava and water from turning into obsidian, cobblestone, stone or basalt
+        Material formed = event.getNewState().getType();
+        if (formed != Material.OBSIDIAN && formed != Material.COBBLESTONE && 
+            formed != Material.STONE && formed != Material.BASALT) return;
+        
+        GameSession session = plugin.getGameManager().getSession(event.getBlock());
+        if (session == null || !session.getLavaManager().isStaticLavaArea(event.getBlock())) return;
+        
+        event.setCancelled(true);
+        session.getLavaManager().recordSuppressedUpdate();
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFlowed(BlockFromToEvent event) {
+        // A liquid already there was journaled when it arrived, or is part of the terrain
+        Block to = event.getToBlock();
+        if (to.isLiquid()) return;
+        
+        recordBlockChange(to);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFormed(BlockFormEvent event) {
+        recordBlockChange(event.getBlock());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockIgnited(BlockIgniteEvent event) {
+        recordBlockChange(event.getBlock());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurned(BlockBurnEvent event) {
+        recordBlockChange(event.getBlock());
+    }
+    
+    private void recordBlockChange(Block block) {
+        GameSession session = plugin.getGameManager().getSession(block);
+        if (session != null) {
+            session.getLavaManager().recordBlockChange(block, block.getBlockData());
+        }
+    }
+}
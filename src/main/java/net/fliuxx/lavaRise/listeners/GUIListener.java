@@ -4,25 +4,70 @@ import net.fliuxx.lavaRise.LavaRise;
 import net.fliuxx.lavaRise.gui.AdminGUI;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
 
 /**
- * Handles GUI-related events for LavaRise
+ * Handles GUI-related events for LavaRise. Only registered while someone has the admin GUI open.
  * 
  * @author Fl1uxxNoob
  */
 public class GUIListener implements Listener {
     
     private final LavaRise plugin;
+    private final Set<UUID> viewers;
+    private boolean opening;
     
     public GUIListener(LavaRise plugin) {
         this.plugin = plugin;
+        this.viewers = new HashSet<>();
+    }
+    
+    /**
+     * Opens the admin GUI for a player. Refreshing an open admin GUI replaces it without the
+     * player ever stopping to be a viewer, so the listener stays registered.
+     */
+    public void open(Player player, Inventory gui) {
+        // Closing the previous inventory fires a close event from inside openInventory
+        opening = true;
+        try {
+            player.openInventory(gui);
+        } finally {
+            opening = false;
+        }
+        
+        // Another plugin may have cancelled the opening
+        if (player.getOpenInventory().getTopInventory() == gui) {
+            addViewer(player);
+        } else {
+            removeViewer(player);
+        }
+    }
+    
+    private void addViewer(Player player) {
+        if (viewers.isEmpty()) {
+            plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        }
+        viewers.add(player.getUniqueId());
+    }
+    
+    private void removeViewer(Player player) {
+        if (viewers.remove(player.getUniqueId()) && viewers.isEmpty()) {
+            HandlerList.unregisterAll(this);
+        }
     }
     
     @EventHandler
     public void onInventoryClick(InventoryClickEvent event) {
+        if (!viewers.contains(event.getWhoClicked().getUniqueId())) return;
         if (!(event.getWhoClicked() instanceof Player)) return;
         if (event.getClickedInventory() == null) return;
         if (event.getClickedInventory().getType() != InventoryType.CHEST) return;
@@ -38,4 +83,15 @@ public class GUIListener implements Listener {
             adminGUI.handleClick(player, event.getSlot());
         }
     }
+    
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        // Replaced by the admin GUI being opened again; open decides whether the player still views it
+        if (opening) return;
+        
+        // Also fired when the viewer quits
+        if (event.getPlayer() instanceof Player) {
+            removeViewer((Player) event.getPlayer());
+        }
+    }
 }
@@ -1,19 +1,31 @@
 package net.fliuxx.lavaRise.listeners;
 
 import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.managers.GameSession;
 import org.bukkit.GameMode;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
 
+import java.util.List;
+
 /**
- * Handles player-related events for LavaRise
+ * Handles player-related events for LavaRise. Registered only while a game runs; every handler
+ * other than join and quit first checks that the event happened in an arena world.
  * 
  * @author Fl1uxxNoob
  */
@@ -29,56 +41,115 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // If a game is active, add player as spectator
-        if (plugin.getGameManager().isGameActive()) {
-            plugin.getGameManager().addSpectator(player);
+        // Players coming back return to their game, anyone else spectates the longest running one
+        GameSession session = plugin.getGameManager().getSession(player);
+        if (session == null) {
+            session = plugin.getGameManager().getDefaultSession();
+        }
+        if (session != null) {
+            session.addSpectator(player);
         }
     }
     
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        GameSession session = plugin.getGameManager().getSession(player);
         
         // If player was in game, eliminate them
-        if (plugin.getGameManager().getAlivePlayers().contains(player.getUniqueId())) {
-            plugin.getGameManager().eliminatePlayer(player);
+        if (session != null) {
+            session.handleQuit(player);
         }
     }
     
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerDeath(PlayerDeathEvent event) {
         Player player = event.getEntity();
+        if (!plugin.getGameManager().isArenaWorld(player.getWorld())) return;
+        
+        GameSession session = plugin.getGameManager().getSession(player);
         
         // Handle death in game
-        if (plugin.getGameManager().isGameActive()) {
-            if (plugin.getGameManager().getAlivePlayers().contains(player.getUniqueId())) {
-                // Clear drops in game
-                event.getDrops().clear();
-                event.setDroppedExp(0);
-                
-                // Eliminate player
-                plugin.getGameManager().eliminatePlayer(player);
-            }
+        if (session != null && session.isAlive(player.getUniqueId())) {
+            // Clear drops in game
+            event.getDrops().clear();
+            event.setDroppedExp(0);
+            
+            // Eliminate player
+            session.eliminatePlayer(player);
         }
     }
     
     @EventHandler
     public void onPlayerRespawn(PlayerRespawnEvent event) {
         Player player = event.getPlayer();
+        if (!plugin.getGameManager().isArenaWorld(player.getWorld())) return;
         
-        // If player died in game, respawn them as spectator in game world
-        if (plugin.getGameManager().isGameActive() && 
-            plugin.getGameManager().getSpectators().contains(player.getUniqueId())) {
-            
-            if (plugin.getWorldManager().getGameWorld() != null) {
-                event.setRespawnLocation(plugin.getWorldManager().getGameWorld().getSpawnLocation());
-            }
+        GameSession session = plugin.getGameManager().getSession(player);
+        
+        // If player died in game, respawn them as spectator above their arena
+        if (session != null && session.isSpectator(player.getUniqueId()) && session.getWorld() != null) {
+            event.setRespawnLocation(session.getSpectatorLocation());
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        recordBlockChange(event.getBlock(), event.getBlock().getBlockData());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        // The block is already placed; the replaced state is what was there before
+        recordBlockChange(event.getBlock(), event.getBlockReplacedState().getBlockData());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent event) {
+        // Taking lava the plan skipped as already there would leave a hole in the next layer
+        recordBlockChange(event.getBlock(), event.getBlock().getBlockData());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event) {
+        recordBlockChange(event.getBlock(), event.getBlock().getBlockData());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        recordBlockChanges(event.blockList());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        recordBlockChanges(event.blockList());
+    }
+    
+    private void recordBlockChanges(List<Block> blocks) {
+        if (blocks.isEmpty() || !plugin.getGameManager().isArenaWorld(blocks.get(0).getWorld())) return;
+        
+        for (Block block : blocks) {
+            recordBlockChange(block, block.getBlockData());
+        }
+    }
+    
+    /**
+     * Journals the block for the arena rollback and drops the next lava layer's plan for its chunk,
+     * which was made from a snapshot that no longer matches
+     */
+    private void recordBlockChange(Block block, BlockData before) {
+        if (!plugin.getGameManager().isArenaWorld(block.getWorld())) return;
+        
+        GameSession session = plugin.getGameManager().getSession(block);
+        if (session != null) {
+            session.getLavaManager().recordBlockChange(block, before);
         }
     }
     
     @EventHandler
     public void onEntityDamage(EntityDamageEvent event) {
         if (!(event.getEntity() instanceof Player)) return;
+        if (!plugin.getGameManager().isArenaWorld(event.getEntity().getWorld())) return;
         
         Player player = (Player) event.getEntity();
         
@@ -88,28 +159,28 @@ public class PlayerListener implements Listener {
             return;
         }
         
+        GameSession session = plugin.getGameManager().getSession(player);
+        if (session == null) return;
+        
         // Check PvP rules
         if (event.getCause() == EntityDamageEvent.DamageCause.ENTITY_ATTACK ||
             event.getCause() == EntityDamageEvent.DamageCause.ENTITY_SWEEP_ATTACK ||
             event.getCause() == EntityDamageEvent.DamageCause.PROJECTILE) {
             
-            if (plugin.getGameManager().isGameActive() && !plugin.getGameManager().isPvpEnabled()) {
+            if (!session.isPvpEnabled()) {
                 // Cancel PvP damage if PvP is not enabled yet
                 event.setCancelled(true);
                 return;
             }
         }
         
-        // Handle lava damage - if player is in lava and would die, eliminate them
-        if (event.getCause() == EntityDamageEvent.DamageCause.LAVA) {
-            if (plugin.getGameManager().isGameActive() && 
-                plugin.getGameManager().getAlivePlayers().contains(player.getUniqueId())) {
-                
-                // Check if this damage would kill the player
-                if (player.getHealth() - event.getDamage() <= 0) {
-                    event.setCancelled(true);
-                    plugin.getPlayerManager().handlePlayerDeath(player);
-                }
+        // Lava damage and elimination come from the LavaDamageTask sweep, with the configured amount and interval
+        if (event.getCause() == EntityDamageEvent.DamageCause.LAVA ||
+            event.getCause() == EntityDamageEvent.DamageCause.FIRE ||
+            event.getCause() == EntityDamageEvent.DamageCause.FIRE_TICK) {
+            
+            if (session.isAlive(player.getUniqueId())) {
+                event.setCancelled(true);
             }
         }
     }
@@ -1,7 +1,19 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.tasks.ArenaRestoreTask;
+import net.fliuxx.lavaRise.tasks.ArenaRollbackTask;
 import net.fliuxx.lavaRise.utils.Arena;
+import net.fliuxx.lavaRise.utils.ArenaSite;
+import net.fliuxx.lavaRise.utils.ArenaSnapshot;
+import net.fliuxx.lavaRise.utils.ArenaStore;
+import net.fliuxx.lavaRise.utils.BlockJournal;
+import net.fliuxx.lavaRise.utils.LavaMode;
+import net.fliuxx.lavaRise.utils.SiteIndex;
+import net.fliuxx.lavaRise.utils.SiteScorer;
+import net.fliuxx.lavaRise.utils.SpawnPool;
+import net.fliuxx.lavaRise.utils.SpawnSampler;
+import net.fliuxx.lavaRise.utils.WorldFiles;
 import org.bukkit.*;
 import org.bukkit.block.Biome;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -10,9 +22,19 @@ import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
 
 /**
  * Manages arena creation, selection and cleanup for LavaRise
@@ -24,16 +46,33 @@ public class ArenaManager {
     private final LavaRise plugin;
     private final List<Arena> availableArenas;
     private final List<Arena> usedArenas;
-    private Arena currentArena;
+    private final Set<Arena> activeArenas;
+    private final Map<String, Integer> warmupGenerations;
+    private final Deque<Runnable> queuedCleanups;
+    private ArenaRollbackTask rollbackTask;
+    private ArenaRestoreTask restoreTask;
     
-    private File arenasFile;
-    private FileConfiguration arenasConfig;
+    private ArenaStore arenaStore;
+    private File snapshotsFolder;
+    private File sitesFile;
+    private SiteIndex siteIndex;
+    
+    // Scores candidate sites for every setup; its threads are only started on the first setup
+    private final ExecutorService siteScorer;
     
     public ArenaManager(LavaRise plugin) {
         this.plugin = plugin;
         this.availableArenas = new ArrayList<>();
         this.usedArenas = new ArrayList<>();
-        this.currentArena = null;
+        this.activeArenas = new HashSet<>();
+        this.warmupGenerations = new HashMap<>();
+        this.queuedCleanups = new ArrayDeque<>();
+        this.siteScorer = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 
+            runnable -> {
+                Thread thread = new Thread(runnable, "LavaRise-SiteScorer");
+                thread.setDaemon(true);
+                return thread;
+            });
         
         loadArenasData();
         checkAvailableArenas();
@@ -45,22 +84,45 @@ public class ArenaManager {
             plugin.getDataFolder().mkdirs();
         }
         
-        arenasFile = new File(plugin.getDataFolder(), "arenas.yml");
-        if (!arenasFile.exists()) {
+        snapshotsFolder = new File(plugin.getDataFolder(), "snapshots");
+        sitesFile = new File(plugin.getDataFolder(), "sites.yml");
+        siteIndex = SiteIndex.load(sitesFile);
+        
+        arenaStore = new ArenaStore(new File(plugin.getDataFolder(), "arenas.log"), plugin.getLogger());
+        File arenasFile = new File(plugin.getDataFolder(), "arenas.yml");
+        
+        if (arenaStore.exists()) {
             try {
-                arenasFile.createNewFile();
-                // Create empty configuration structure
-                YamlConfiguration emptyConfig = new YamlConfiguration();
-                emptyConfig.createSection("available");
-                emptyConfig.createSection("used");
-                emptyConfig.save(arenasFile);
+                arenaStore.replay(availableArenas, usedArenas);
             } catch (IOException e) {
-                plugin.getLogger().severe("Could not create arenas.yml file!");
-                return;
+                plugin.getLogger().severe("Could not read arenas.log file!");
             }
+        } else if (arenasFile.exists()) {
+            migrateArenasFile(arenasFile);
         }
         
-        arenasConfig = YamlConfiguration.loadConfiguration(arenasFile);
+        // Existing arenas keep their area, whether they are still playable or not
+        for (Arena arena : availableArenas) {
+            siteIndex.claim(arena.getCenter().getBlockX(), arena.getCenter().getBlockZ());
+        }
+        for (Arena arena : usedArenas) {
+            siteIndex.claim(arena.getCenter().getBlockX(), arena.getCenter().getBlockZ());
+        }
+    }
+    
+    private void saveSiteIndex() {
+        try {
+            siteIndex.save(sitesFile);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save sites.yml file!");
+        }
+    }
+    
+    /**
+     * Imports the arenas of an arenas.yml file written by older versions into the arena log
+     */
+    private void migrateArenasFile(File arenasFile) {
+        FileConfiguration arenasConfig = YamlConfiguration.loadConfiguration(arenasFile);
         
         // Load available arenas
         if (arenasConfig.contains("available")) {
@@ -81,242 +143,486 @@ public class ArenaManager {
                 }
             }
         }
+        
+        // arenas.yml is only retired once the log holding its arenas is on disk
+        int migrated = availableArenas.size() + usedArenas.size();
+        arenaStore.compact(availableArenas, usedArenas).thenRun(() -> {
+            if (arenasFile.renameTo(new File(plugin.getDataFolder(), "arenas.yml.migrated"))) {
+                plugin.getLogger().info("Migrated " + migrated + " arenas from arenas.yml to arenas.log");
+            }
+        });
     }
     
-    private void saveArenasData() {
-        // Clear current data
-        arenasConfig.set("available", null);
-        arenasConfig.set("used", null);
-        
-        // Save available arenas
-        for (int i = 0; i < availableArenas.size(); i++) {
-            availableArenas.get(i).saveToConfig(arenasConfig, "available.arena" + i);
-        }
-        
-        // Save used arenas
-        for (int i = 0; i < usedArenas.size(); i++) {
-            usedArenas.get(i).saveToConfig(arenasConfig, "used.arena" + i);
-        }
-        
-        try {
-            arenasConfig.save(arenasFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save arenas.yml file!");
+    /**
+     * Rewrites the arena log once enough state changes have been appended to it
+     */
+    private void compactArenaStore() {
+        if (arenaStore.needsCompaction(availableArenas.size() + usedArenas.size())) {
+            arenaStore.compact(availableArenas, usedArenas);
         }
     }
     
+    /**
+     * Writes the pending arena changes, e.g. on shutdown
+     */
+    public void closeArenaStore() {
+        arenaStore.close();
+    }
+    
+    /**
+     * Stops the site scoring threads, on shutdown
+     */
+    public void shutdownSiteScorer() {
+        siteScorer.shutdownNow();
+    }
+    
     public boolean setupNewArenas(Player player) {
         player.sendMessage(ChatColor.YELLOW + "Creating LavaRise world and arenas... This may take a while!");
         
-        // Create or get LavaRise world
-        World lavaWorld = createLavaRiseWorld();
-        if (lavaWorld == null) {
-            player.sendMessage(ChatColor.RED + "Failed to create LavaRise world!");
+        String worldName = getArenaWorldName();
+        
+        // Unload the existing world first
+        World existingWorld = Bukkit.getWorld(worldName);
+        if (existingWorld != null && !Bukkit.unloadWorld(existingWorld, false)) {
+            player.sendMessage(ChatColor.RED + "Failed to unload the existing LavaRise world!");
             return false;
         }
         
-        player.sendMessage(ChatColor.GREEN + "LavaRise world created successfully!");
-        
-        // Generate arenas asynchronously to avoid blocking main thread
+        // Delete the old world folder off the main thread, then create the new world
+        File worldFolder = new File(Bukkit.getWorldContainer(), worldName);
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            generateArenasAsync(player, lavaWorld);
+            try {
+                WorldFiles.deleteTree(worldFolder.toPath());
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not delete old world files for " + worldName + ": " + e.getMessage());
+            }
+            
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                // Create or get LavaRise world
+                Long previousSeed = siteIndex.getSeed();
+                World lavaWorld = createLavaRiseWorld(worldName);
+                if (lavaWorld == null) {
+                    player.sendMessage(ChatColor.RED + "Failed to create LavaRise world!");
+                    return;
+                }
+                
+                player.sendMessage(ChatColor.GREEN + "LavaRise world created successfully!");
+                
+                // Same seed, same terrain: the snapshots of the existing arenas still match it
+                if (previousSeed != null && previousSeed == lavaWorld.getSeed()) {
+                    generateArenas(player, lavaWorld);
+                    return;
+                }
+                
+                // Snapshots of the old world's arenas no longer match any terrain
+                Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                    try {
+                        WorldFiles.deleteTree(snapshotsFolder.toPath());
+                    } catch (IOException e) {
+                        plugin.getLogger().warning("Could not delete old arena snapshots: " + e.getMessage());
+                    }
+                    
+                    // Reuse scanned sites first, scan new candidates asynchronously only when needed
+                    Bukkit.getScheduler().runTask(plugin, () -> generateArenas(player, lavaWorld));
+                });
+            });
         });
         
         return true;
     }
     
-    private void generateArenasAsync(Player player, World lavaWorld) {
-        List<Arena> newArenas = new ArrayList<>();
+    /**
+     * World the arenas are created in: the template world in template mode, the game world otherwise
+     */
+    private String getArenaWorldName() {
+        return plugin.getConfigManager().isWorldTemplateEnabled() ? 
+            plugin.getConfigManager().getWorldTemplateName() : 
+            plugin.getConfigManager().getWorldName();
+    }
+    
+    private void generateArenas(Player player, World lavaWorld) {
+        int arenaCount = plugin.getConfigManager().getArenaSetupCount();
+        int arenaSize = plugin.getConfigManager().getBorderInitialSize();
+        double maxWaterRatio = plugin.getConfigManager().getArenaMaxWaterRatio();
+        
+        // Sites scanned by earlier setups are still valid: the world is recreated from the same seed
+        List<ArenaSite> knownSites = siteIndex.findBestSites(arenaCount, maxWaterRatio, arenaSize);
+        if (knownSites.size() >= arenaCount) {
+            player.sendMessage(ChatColor.YELLOW + "Using " + knownSites.size() + " previously scanned sites.");
+            createArenasFromSites(player, lavaWorld, knownSites);
+            return;
+        }
+        
         Random random = new Random();
         
-        // Generate all coordinates first
+        // Generate all coordinates first, away from the areas that were already scanned
         List<int[]> coordinates = new ArrayList<>();
+        int candidates = plugin.getConfigManager().getArenaSetupCandidates();
         int attempts = 0;
-        int maxAttempts = 100;
+        int maxAttempts = candidates * 10;
         
-        while (coordinates.size() < maxAttempts) {
+        while (coordinates.size() < candidates && attempts++ < maxAttempts) {
             int x = random.nextInt(8000) - 4000; // -4000 to +4000
             int z = random.nextInt(8000) - 4000;
+            if (siteIndex.isScanned(x, z, arenaSize) || siteIndex.isClaimed(x, z, arenaSize)) continue;
+            
             coordinates.add(new int[]{x, z});
         }
         
-        // Process coordinates on main thread
-        Bukkit.getScheduler().runTask(plugin, () -> {
-            processArenaCoordinates(player, lavaWorld, coordinates, newArenas, 0);
-        });
+        scoreArenaSites(player, lavaWorld, coordinates);
     }
     
-    private void processArenaCoordinates(Player player, World lavaWorld, List<int[]> coordinates, List<Arena> newArenas, int index) {
-        if (newArenas.size() >= 4 || index >= coordinates.size()) {
-            finishArenaSetup(player, newArenas);
+    /**
+     * Loads a grid of chunks across every candidate's arena asynchronously, hands their snapshots
+     * to a worker pool for scoring and keeps the best sites once every candidate has been scored
+     */
+    private void scoreArenaSites(Player player, World lavaWorld, List<int[]> coordinates) {
+        if (coordinates.isEmpty()) {
+            createArenasFromSites(player, lavaWorld, siteIndex.findBestSites(
+                plugin.getConfigManager().getArenaSetupCount(), 
+                plugin.getConfigManager().getArenaMaxWaterRatio(), 
+                plugin.getConfigManager().getBorderInitialSize()));
             return;
         }
         
-        int[] coord = coordinates.get(index);
-        int x = coord[0];
-        int z = coord[1];
-        
-        try {
-            // Load chunk synchronously on main thread
-            int chunkX = x >> 4;
-            int chunkZ = z >> 4;
+        // The whole arena is scored, from every stride-th chunk with the center chunk among them
+        int radius = plugin.getConfigManager().getBorderInitialSize() / 2;
+        int stride = plugin.getConfigManager().getArenaSampleStride();
+        int reach = ((radius + 15) >> 4) / stride * stride;
+        int perAxis = 2 * reach / stride + 1;
+        int minY = lavaWorld.getMinHeight();
+        List<ArenaSite> sites = new ArrayList<>();
+        int[] pending = {coordinates.size()};
+        long startTime = System.nanoTime();
+        
+        player.sendMessage(ChatColor.YELLOW + "Scoring " + coordinates.size() + " candidate sites...");
+        
+        for (int[] coord : coordinates) {
+            int x = coord[0];
+            int z = coord[1];
+            int minChunkX = (x >> 4) - reach;
+            int maxChunkX = (x >> 4) + reach;
+            int minChunkZ = (z >> 4) - reach;
+            int maxChunkZ = (z >> 4) + reach;
+            
+            List<ChunkSnapshot> snapshots = new ArrayList<>();
+            int[] remaining = {perAxis * perAxis};
             
-            if (!lavaWorld.isChunkLoaded(chunkX, chunkZ)) {
-                lavaWorld.loadChunk(chunkX, chunkZ, true);
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX += stride) {
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ += stride) {
+                    // Completed on the main thread: only the snapshot is taken here
+                    lavaWorld.getChunkAtAsync(chunkX, chunkZ, true).whenComplete((chunk, throwable) -> {
+                        if (throwable == null) {
+                            snapshots.add(chunk.getChunkSnapshot(true, true, false));
+                        }
+                        if (--remaining[0] > 0) return;
+                        
+                        siteScorer.execute(() -> {
+                            ArenaSite scored = null;
+                            try {
+                                scored = SiteScorer.score(x, z, radius, minY, snapshots);
+                            } catch (RuntimeException e) {
+                                plugin.getLogger().warning("Could not score arena site at " + x + ", " + z + ": " + e);
+                            }
+                            ArenaSite site = scored;
+                            
+                            // Always reported, so a failed site cannot keep the setup from finishing
+                            Bukkit.getScheduler().runTask(plugin, () -> {
+                                if (site != null) {
+                                    sites.add(site);
+                                }
+                                if (--pending[0] > 0) return;
+                                
+                                plugin.getLogger().info("Scored " + sites.size() + " arena sites in " + 
+                                    (System.nanoTime() - startTime) / 1_000_000 + " ms");
+                                
+                                // Remember every score, then pick from old and new sites together
+                                sites.forEach(siteIndex::add);
+                                saveSiteIndex();
+                                createArenasFromSites(player, lavaWorld, siteIndex.findBestSites(
+                                    plugin.getConfigManager().getArenaSetupCount(), 
+                                    plugin.getConfigManager().getArenaMaxWaterRatio(), 
+                                    plugin.getConfigManager().getBorderInitialSize()));
+                            });
+                        });
+                    });
+                }
             }
+        }
+    }
+    
+    /**
+     * Creates an arena on each of the given sites, which must already be ranked and non-overlapping
+     */
+    private void createArenasFromSites(Player player, World lavaWorld, List<ArenaSite> sites) {
+        int arenaCount = plugin.getConfigManager().getArenaSetupCount();
+        int arenaSize = plugin.getConfigManager().getBorderInitialSize();
+        List<Arena> newArenas = new ArrayList<>();
+        
+        for (ArenaSite site : sites) {
+            if (newArenas.size() >= arenaCount) break;
             
-            int y = lavaWorld.getHighestBlockYAt(x, z);
-            Location center = new Location(lavaWorld, x, y, z);
+            Location center = new Location(lavaWorld, site.getX(), site.getSurfaceY(), site.getZ());
+            Arena arena = new Arena(
+                "arena_" + System.currentTimeMillis() + "_" + newArenas.size(),
+                center,
+                arenaSize
+            );
+            arena.setLavaMode(plugin.getConfigManager().getDefaultLavaMode());
             
-            if (isSuitableArenaLocationSync(center)) {
-                Arena arena = new Arena(
-                    "arena_" + System.currentTimeMillis() + "_" + newArenas.size(),
-                    center,
-                    plugin.getConfigManager().getBorderInitialSize()
-                );
-                
-                newArenas.add(arena);
-                player.sendMessage(ChatColor.GREEN + "Arena " + (newArenas.size()) + "/4 created at " + 
-                    center.getBlockX() + ", " + center.getBlockZ());
-            }
-        } catch (Exception e) {
-            plugin.getLogger().warning("Failed to check arena location at " + x + ", " + z + ": " + e.getMessage());
+            siteIndex.claim(site.getX(), site.getZ());
+            newArenas.add(arena);
+            plugin.getLogger().info("Selected " + site);
+            player.sendMessage(ChatColor.GREEN + "Arena " + (newArenas.size()) + "/" + arenaCount + " created at " + 
+                center.getBlockX() + ", " + center.getBlockZ());
         }
         
-        // Schedule next coordinate check with a small delay
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            processArenaCoordinates(player, lavaWorld, coordinates, newArenas, index + 1);
-        }, 2L); // 2 ticks delay
+        finishArenaSetup(player, lavaWorld, newArenas);
     }
     
-    private void finishArenaSetup(Player player, List<Arena> newArenas) {
-        if (newArenas.size() < 4) {
-            player.sendMessage(ChatColor.RED + "Warning: Could only create " + newArenas.size() + " arenas out of 4!");
+    private void finishArenaSetup(Player player, World lavaWorld, List<Arena> newArenas) {
+        int arenaCount = plugin.getConfigManager().getArenaSetupCount();
+        if (newArenas.size() < arenaCount) {
+            player.sendMessage(ChatColor.RED + "Warning: Could only create " + newArenas.size() + " arenas out of " + arenaCount + "!");
         }
         
         // Add new arenas to available list
         availableArenas.addAll(newArenas);
-        saveArenasData();
+        newArenas.forEach(arenaStore::created);
+        compactArenaStore();
         
         player.sendMessage(ChatColor.GREEN + "Setup complete! " + newArenas.size() + " new arenas created.");
         player.sendMessage(ChatColor.YELLOW + "Total available arenas: " + availableArenas.size());
-    }
-    
-    
-    
-    private boolean isSuitableArenaLocation(Location center) {
-        World world = center.getWorld();
-        int x = center.getBlockX();
-        int z = center.getBlockZ();
         
-        // Check a 50x50 area around the center
-        int waterBlocks = 0;
-        int totalBlocks = 0;
-        
-        for (int dx = -25; dx <= 25; dx += 5) {
-            for (int dz = -25; dz <= 25; dz += 5) {
-                int y = world.getHighestBlockYAt(x + dx, z + dz);
-                Location checkLoc = new Location(world, x + dx, y, z + dz);
-                
-                // Check if it's water or if Y is too low (probably ocean)
-                if (checkLoc.getBlock().getType() == Material.WATER || y < 60) {
-                    waterBlocks++;
-                }
-                
-                totalBlocks++;
+        if (plugin.getConfigManager().isWorldTemplateEnabled()) {
+            // The template stays on disk untouched; every game is played on a copy of it
+            // Saved and unloaded once here, so starting a game only costs loading its copy
+            if (Bukkit.unloadWorld(lavaWorld, true)) {
+                player.sendMessage(ChatColor.GREEN + "Template world saved.");
+            } else {
+                player.sendMessage(ChatColor.RED + "Could not unload the template world, games will copy its last saved state!");
             }
+            return;
         }
         
-        // Reject if more than 30% water
-        return (waterBlocks / (double) totalBlocks) < 0.3;
+        // Snapshot the untouched terrain so the arenas can be restored and reused after each game
+        captureSnapshots(player, new ArrayList<>(newArenas), 0);
     }
     
-    private boolean isSuitableArenaLocationSync(Location center) {
-        World world = center.getWorld();
-        int x = center.getBlockX();
-        int z = center.getBlockZ();
+    private void captureSnapshots(Player player, List<Arena> arenas, int index) {
+        if (index >= arenas.size()) {
+            if (!arenas.isEmpty() && player.isOnline()) {
+                player.sendMessage(ChatColor.GREEN + "Arena snapshots saved.");
+            }
+            return;
+        }
         
-        // Simplified check to avoid long operations on main thread
-        // Just check the center and a few key points
-        int waterBlocks = 0;
-        int totalBlocks = 0;
+        // One arena at a time to keep the number of loaded chunks bounded
+        captureArenaSnapshot(arenas.get(index), () -> captureSnapshots(player, arenas, index + 1));
+    }
+    
+    /**
+     * Loads the arena chunks asynchronously, snapshots them on the main thread and encodes
+     * the snapshot file off the main thread
+     */
+    private void captureArenaSnapshot(Arena arena, Runnable next) {
+        World world = arena.getCenter().getWorld();
+        if (world == null) {
+            next.run();
+            return;
+        }
         
-        // Check only 9 points in a 3x3 grid to be faster
-        for (int dx = -10; dx <= 10; dx += 10) {
-            for (int dz = -10; dz <= 10; dz += 10) {
-                try {
-                    int y = world.getHighestBlockYAt(x + dx, z + dz);
-                    Location checkLoc = new Location(world, x + dx, y, z + dz);
+        int radius = arena.getSize() / 2;
+        int minChunkX = (arena.getCenter().getBlockX() - radius) >> 4;
+        int maxChunkX = (arena.getCenter().getBlockX() + radius) >> 4;
+        int minChunkZ = (arena.getCenter().getBlockZ() - radius) >> 4;
+        int maxChunkZ = (arena.getCenter().getBlockZ() + radius) >> 4;
+        int minY = world.getMinHeight();
+        int maxY = Math.min(plugin.getConfigManager().getMaxHeight(), world.getMaxHeight());
+        
+        int chunkCount = (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        ChunkSnapshot[] snapshots = new ChunkSnapshot[chunkCount];
+        int[] remaining = {chunkCount};
+        int[] failed = {0};
+        
+        int slot = 0;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                int chunkSlot = slot++;
+                int failedX = chunkX;
+                int failedZ = chunkZ;
+                world.getChunkAtAsync(chunkX, chunkZ, true).whenComplete((chunk, throwable) -> {
+                    if (throwable != null) {
+                        plugin.getLogger().warning("Could not load arena chunk " + failedX + ", " + failedZ + ": " + throwable.getMessage());
+                        failed[0]++;
+                    } else {
+                        snapshots[chunkSlot] = chunk.getChunkSnapshot(false, false, false);
+                    }
+                    if (--remaining[0] > 0) return;
                     
-                    // Check if it's water or if Y is too low (probably ocean)
-                    if (checkLoc.getBlock().getType() == Material.WATER || y < 60) {
-                        waterBlocks++;
+                    // A partial snapshot would restore only part of the arena; it falls back to the journal instead
+                    if (failed[0] > 0) {
+                        plugin.getLogger().severe("Skipped snapshot of arena " + arena.getId() + ": " + failed[0] + " chunks could not be loaded");
+                        next.run();
+                        return;
                     }
                     
-                    totalBlocks++;
-                } catch (Exception e) {
-                    // If we can't check this location, count it as unsuitable
-                    waterBlocks++;
-                    totalBlocks++;
-                }
+                    File file = getSnapshotFile(arena);
+                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                        try {
+                            long bytes = ArenaSnapshot.write(file, Arrays.asList(snapshots), minY, maxY);
+                            plugin.getLogger().info("Saved snapshot of arena " + arena.getId() + " (" + 
+                                chunkCount + " chunks, " + (bytes / 1024) + " KB)");
+                        } catch (IOException e) {
+                            plugin.getLogger().severe("Could not save snapshot of arena " + arena.getId() + ": " + e.getMessage());
+                        }
+                        Bukkit.getScheduler().runTask(plugin, next);
+                    });
+                });
             }
         }
-        
-        // Reject if more than 30% water
-        return (waterBlocks / (double) totalBlocks) < 0.3;
     }
     
-    private void preloadArenaChunks(Arena arena) {
+    private File getSnapshotFile(Arena arena) {
+        return new File(snapshotsFolder, arena.getId() + ".snap");
+    }
+    
+    
+    
+    /**
+     * Loads or generates every chunk under the arena's initial border asynchronously and keeps
+     * them loaded with plugin chunk tickets until the arena is cleaned up.
+     * 
+     * @param onProgress called on the main thread with the percentage of chunks ready
+     * @param onComplete called on the main thread once every chunk is ready; not called when
+     *                   the game finishes before the warm-up does
+     */
+    public void warmUpArena(Arena arena, IntConsumer onProgress, Runnable onComplete) {
         World world = arena.getCenter().getWorld();
-        int centerX = arena.getCenter().getChunk().getX();
-        int centerZ = arena.getCenter().getChunk().getZ();
-        
-        // Load only essential chunks during game
-        int radius = 2; // 5x5 chunk area
-        
-        // Must be executed on main thread for chunk operations
-        if (!Bukkit.isPrimaryThread()) {
-            Bukkit.getScheduler().runTask(plugin, () -> preloadArenaChunks(arena));
-            return;
-        }
+        int warmup = warmupGenerations.merge(arena.getId(), 1, Integer::sum);
         
-        for (int x = centerX - radius; x <= centerX + radius; x++) {
-            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
-                // Load chunk synchronously on main thread
-                world.loadChunk(x, z, true);
+        int radius = arena.getSize() / 2;
+        int minChunkX = (arena.getCenter().getBlockX() - radius) >> 4;
+        int maxChunkX = (arena.getCenter().getBlockX() + radius) >> 4;
+        int minChunkZ = (arena.getCenter().getBlockZ() - radius) >> 4;
+        int maxChunkZ = (arena.getCenter().getBlockZ() + radius) >> 4;
+        int total = (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        int[] ready = {0};
+        long startTime = System.nanoTime();
+        
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                int chunkX = x;
+                int chunkZ = z;
                 
-                Chunk chunk = world.getChunkAt(x, z);
-                // Keep chunk loaded during game
-                chunk.setForceLoaded(true);
+                // Paper completes these on the main thread, so the counter needs no synchronization
+                world.getChunkAtAsync(chunkX, chunkZ, true).whenComplete((chunk, throwable) -> {
+                    if (warmup != warmupGenerations.get(arena.getId())) return;
+                    
+                    if (throwable != null) {
+                        plugin.getLogger().warning("Could not load arena chunk " + chunkX + ", " + chunkZ + ": " + throwable.getMessage());
+                    } else {
+                        world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+                    }
+                    
+                    int previousPercent = ready[0] * 100 / total;
+                    int percent = ++ready[0] * 100 / total;
+                    if (percent != previousPercent) {
+                        onProgress.accept(percent);
+                    }
+                    
+                    if (ready[0] == total) {
+                        plugin.getLogger().info("Warmed up " + total + " chunks for arena " + arena.getId() + " in " + 
+                            (System.nanoTime() - startTime) / 1_000_000 + " ms");
+                        onComplete.run();
+                    }
+                });
             }
         }
-        
-        plugin.getLogger().info("Pre-loaded game chunks for arena: " + arena.getId());
     }
     
-    private World createLavaRiseWorld() {
-        String worldName = plugin.getConfigManager().getWorldName();
-        
-        // Delete existing world if it exists
-        World existingWorld = Bukkit.getWorld(worldName);
-        if (existingWorld != null) {
-            // Unload world first
-            Bukkit.unloadWorld(existingWorld, false);
-            
-            // Delete world folder
-            File worldFolder = new File(Bukkit.getWorldContainer(), worldName);
-            deleteDirectory(worldFolder);
+    /**
+     * Samples the arena's spawn points from heightmap snapshots off the main thread. The pool is kept
+     * with the arena and reused by every later game; it is only sampled again when the spawn settings changed.
+     * 
+     * @param onComplete called on the main thread once the arena has a spawn pool
+     */
+    public void prepareSpawnPool(Arena arena, Runnable onComplete) {
+        // Spawns stay inside the initial border, whatever the configured spread
+        int spread = Math.max(0, Math.min(plugin.getConfigManager().getGameSpreadDistance(), arena.getSize() / 2 - 1));
+        int spacing = plugin.getConfigManager().getSpawnSpacing();
+        
+        SpawnPool cached = arena.getSpawnPool();
+        if (cached != null && cached.matches(spread, spacing)) {
+            onComplete.run();
+            return;
         }
         
+        World world = arena.getCenter().getWorld();
+        int centerX = arena.getCenter().getBlockX();
+        int centerZ = arena.getCenter().getBlockZ();
+        int minChunkX = (centerX - spread) >> 4;
+        int maxChunkX = (centerX + spread) >> 4;
+        int minChunkZ = (centerZ - spread) >> 4;
+        int maxChunkZ = (centerZ + spread) >> 4;
+        
+        // Never spawn in the starting lava, nor closer than ten blocks to max_height
+        int minY = Math.max(world.getMinHeight() + 1, plugin.getConfigManager().getStartingLavaLevel() + 1);
+        int maxY = Math.min(world.getMaxHeight() - 3, plugin.getConfigManager().getMaxHeight() - 9);
+        long seed = arena.getId().hashCode() * 31L + world.getSeed();
+        
+        List<ChunkSnapshot> snapshots = new ArrayList<>();
+        int[] remaining = {(maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1)};
+        long startTime = System.nanoTime();
+        
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                // Completed on the main thread: only the snapshot is taken here, the chunks are warm already
+                world.getChunkAtAsync(chunkX, chunkZ, true).whenComplete((chunk, throwable) -> {
+                    if (throwable == null) {
+                        snapshots.add(chunk.getChunkSnapshot(true, false, false));
+                    }
+                    if (--remaining[0] > 0) return;
+                    
+                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                        SpawnPool pool = SpawnSampler.sample(centerX, centerZ, spread, spacing, minY, maxY, snapshots, seed);
+                        
+                        Bukkit.getScheduler().runTask(plugin, () -> {
+                            arena.setSpawnPool(pool);
+                            plugin.getLogger().info("Sampled " + pool.size() + " spawn points for arena " + arena.getId() + " in " + 
+                                (System.nanoTime() - startTime) / 1_000_000 + " ms");
+                            if (pool.size() < plugin.getConfigManager().getMaxPlayers()) {
+                                plugin.getLogger().warning("Arena " + arena.getId() + " has fewer spawn points than max_players, " + 
+                                    "some players will share one; lower teleport.spawn_spacing to get more");
+                            }
+                            onComplete.run();
+                        });
+                    });
+                });
+            }
+        }
+    }
+    
+    private World createLavaRiseWorld(String worldName) {
         // Create new world
         WorldCreator creator = new WorldCreator(worldName);
         creator.environment(World.Environment.NORMAL);
         creator.type(WorldType.NORMAL);
         creator.generateStructures(true);
         
+        // Keep generating the same terrain so the scanned sites stay valid
+        if (siteIndex.getSeed() != null) {
+            creator.seed(siteIndex.getSeed());
+        }
+        
         World world = creator.createWorld();
         
         if (world != null) {
+            if (siteIndex.getSeed() == null || siteIndex.getSeed() != world.getSeed()) {
+                siteIndex.reset(world.getSeed());
+                saveSiteIndex();
+            }
+            
             // Configure world settings
             world.setDifficulty(Difficulty.NORMAL);
             world.setSpawnFlags(false, false); // No monsters/animals spawning
@@ -332,55 +638,29 @@ public class ArenaManager {
         return world;
     }
     
-    private void deleteDirectory(File directory) {
-        if (directory.exists()) {
-            File[] files = directory.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
+    /**
+     * Reserves the first available arena that no other game is playing on
+     * 
+     * @return the arena, or null when every available arena is taken
+     */
+    public Arena acquireNextArena() {
+        for (Arena arena : availableArenas) {
+            if (activeArenas.add(arena)) {
+                return arena;
             }
-            directory.delete();
         }
+        return null;
     }
     
-    private void preloadArenaChunksOnly(Arena arena) {
-        World world = arena.getCenter().getWorld();
-        int centerX = arena.getCenter().getChunk().getX();
-        int centerZ = arena.getCenter().getChunk().getZ();
-        
-        // Load only the minimum chunks needed for the arena (3x3 chunk area)
-        int radius = 1; // Only 3x3 chunks around center
-        
-        // Must be executed on main thread for chunk operations
-        if (!Bukkit.isPrimaryThread()) {
-            Bukkit.getScheduler().runTask(plugin, () -> preloadArenaChunksOnly(arena));
-            return;
-        }
-        
-        for (int x = centerX - radius; x <= centerX + radius; x++) {
-            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
-                // Load chunk synchronously but don't force-load to avoid server stress
-                world.loadChunk(x, z, true);
-            }
-        }
-        
-        plugin.getLogger().info("Pre-loaded minimal chunks for arena: " + arena.getId());
-    }
-    
-    public Arena getNextAvailableArena() {
-        if (availableArenas.isEmpty()) {
-            return null;
-        }
-        
-        // Return first available arena
-        Arena arena = availableArenas.get(0);
-        currentArena = arena;
-        return arena;
+    /**
+     * Hands back an arena whose game never started, e.g. because its world could not be loaded
+     */
+    public void cancelArena(Arena arena) {
+        if (!activeArenas.remove(arena)) return;
+        
+        // Drop a warm-up that is still loading chunks
+        warmupGenerations.merge(arena.getId(), 1, Integer::sum);
+        unloadArenaChunks(arena);
     }
     
     public void markArenaAsUsed(Arena arena) {
@@ -388,52 +668,133 @@ public class ArenaManager {
         
         availableArenas.remove(arena);
         usedArenas.add(arena);
-        saveArenasData();
+        arena.setUsed(true);
+        arenaStore.used(arena);
+        compactArenaStore();
         
         plugin.getLogger().info("Arena " + arena.getId() + " marked as used");
-        
-        // Clean up the arena
-        cleanupArena(arena);
     }
     
-    private void cleanupArena(Arena arena) {
+    /**
+     * Puts a restored arena back into the available pool
+     */
+    private void releaseArena(Arena arena) {
+        if (!usedArenas.remove(arena)) return;
+        
+        arena.setUsed(false);
+        availableArenas.add(arena);
+        arenaStore.restored(arena);
+        compactArenaStore();
+        
+        plugin.getLogger().info("Arena " + arena.getId() + " restored and available again");
+    }
+    
+    private void cleanupArena(Arena arena, BlockJournal journal) {
         World world = arena.getCenter().getWorld();
         if (world == null) return;
         
-        Location center = arena.getCenter();
-        int radius = arena.getSize() / 2;
+        // A snapshot also undoes player changes, so the arena can be played again
+        ArenaSnapshot snapshot = openSnapshot(arena);
+        if (snapshot != null) {
+            queueCleanup(() -> {
+                restoreTask = new ArenaRestoreTask(plugin, world, snapshot, () -> {
+                    unloadArenaChunks(arena);
+                    releaseArena(arena);
+                    startNextCleanup();
+                });
+                restoreTask.start();
+            });
+            return;
+        }
         
-        // Remove all lava from the arena
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            for (int x = center.getBlockX() - radius; x <= center.getBlockX() + radius; x++) {
-                for (int z = center.getBlockZ() - radius; z <= center.getBlockZ() + radius; z++) {
-                    for (int y = 0; y <= plugin.getConfigManager().getMaxHeight(); y++) {
-                        Location blockLoc = new Location(world, x, y, z);
-                        if (blockLoc.getBlock().getType() == Material.LAVA) {
-                            blockLoc.getBlock().setType(Material.AIR);
-                        }
-                    }
-                }
-            }
-            
-            plugin.getLogger().info("Cleaned up arena: " + arena.getId());
+        // Logical lava never touches the world - nothing to roll back
+        if (journal == null || journal.isEmpty()) {
+            unloadArenaChunks(arena);
+            return;
+        }
+        
+        // Replay the journal on the main thread, newest change first, within the tick budget
+        queueCleanup(() -> {
+            rollbackTask = new ArenaRollbackTask(plugin, world, journal, () -> {
+                unloadArenaChunks(arena);
+                plugin.getLogger().info("Cleaned up arena: " + arena.getId());
+                startNextCleanup();
+            });
+            rollbackTask.start();
         });
+    }
+    
+    /**
+     * Runs arena restores one after another, so games ending together never stack their block budgets
+     */
+    private void queueCleanup(Runnable start) {
+        queuedCleanups.addLast(start);
+        if (!isCleanupRunning()) {
+            startNextCleanup();
+        }
+    }
+    
+    private void startNextCleanup() {
+        Runnable start = queuedCleanups.pollFirst();
+        if (start != null) {
+            start.run();
+        }
+    }
+    
+    /**
+     * Whether an arena is still being restored or rolled back, reading its world and snapshot
+     */
+    public boolean isCleanupRunning() {
+        return (rollbackTask != null && !rollbackTask.isFinished()) || 
+            (restoreTask != null && !restoreTask.isFinished());
+    }
+    
+    private ArenaSnapshot openSnapshot(Arena arena) {
+        File file = getSnapshotFile(arena);
+        if (!file.exists()) return null;
         
-        // Unload chunks to free memory
-        unloadArenaChunks(arena);
+        try {
+            return ArenaSnapshot.open(file);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not open snapshot of arena " + arena.getId() + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Completes the running and queued arena rollbacks and snapshot restores immediately, e.g. on shutdown
+     */
+    public void finishPendingRollback() {
+        // Every finished restore starts the next queued one
+        while (true) {
+            if (rollbackTask != null && !rollbackTask.isFinished()) {
+                rollbackTask.finishNow();
+            } else if (restoreTask != null && !restoreTask.isFinished()) {
+                restoreTask.finishNow();
+            } else if (!queuedCleanups.isEmpty()) {
+                startNextCleanup();
+            } else {
+                break;
+            }
+        }
+        rollbackTask = null;
+        restoreTask = null;
     }
     
     private void unloadArenaChunks(Arena arena) {
         World world = arena.getCenter().getWorld();
-        int centerX = arena.getCenter().getChunk().getX();
-        int centerZ = arena.getCenter().getChunk().getZ();
-        
-        int radius = (arena.getSize() / 2) / 16 + 2;
+        if (world == null) return;
         
-        for (int x = centerX - radius; x <= centerX + radius; x++) {
-            for (int z = centerZ - radius; z <= centerZ + radius; z++) {
-                Chunk chunk = world.getChunkAt(x, z);
-                chunk.setForceLoaded(false);
+        int radius = arena.getSize() / 2;
+        int minChunkX = (arena.getCenter().getBlockX() - radius) >> 4;
+        int maxChunkX = (arena.getCenter().getBlockX() + radius) >> 4;
+        int minChunkZ = (arena.getCenter().getBlockZ() - radius) >> 4;
+        int maxChunkZ = (arena.getCenter().getBlockZ() + radius) >> 4;
+        
+        // Release the warm-up tickets; the server unloads the chunks when nothing else holds them
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                world.removePluginChunkTicket(x, z, plugin);
             }
         }
     }
@@ -450,8 +811,28 @@ public class ArenaManager {
         }
     }
     
-    public Arena getCurrentArena() {
-        return currentArena;
+    public Arena findArena(String id) {
+        for (Arena arena : availableArenas) {
+            if (arena.getId().equalsIgnoreCase(id)) return arena;
+        }
+        for (Arena arena : usedArenas) {
+            if (arena.getId().equalsIgnoreCase(id)) return arena;
+        }
+        return null;
+    }
+    
+    public List<String> getArenaIds() {
+        List<String> ids = new ArrayList<>();
+        for (Arena arena : availableArenas) {
+            ids.add(arena.getId());
+        }
+        return ids;
+    }
+    
+    public void setArenaLavaMode(Arena arena, LavaMode lavaMode) {
+        arena.setLavaMode(lavaMode);
+        arenaStore.lavaModeChanged(arena);
+        compactArenaStore();
     }
     
     public int getAvailableArenasCount() {
@@ -462,10 +843,41 @@ public class ArenaManager {
         return usedArenas.size();
     }
     
-    public void finishCurrentGame() {
-        if (currentArena != null) {
-            markArenaAsUsed(currentArena);
-            currentArena = null;
+    /**
+     * Releases the arena of a finished game and restores it, leaving it free for the next game.
+     * A template arena stays reserved until {@link #releaseArenaCopy(Arena)}.
+     */
+    public void finishGame(Arena arena, BlockJournal journal) {
+        if (!activeArenas.contains(arena)) return;
+        
+        // Drop a warm-up that is still loading chunks
+        warmupGenerations.merge(arena.getId(), 1, Integer::sum);
+        
+        if (plugin.getConfigManager().isWorldTemplateEnabled()) {
+            // The game copy is thrown away, the template arena can be played again once it is gone
+            rotateArena(arena);
+        } else {
+            activeArenas.remove(arena);
+            markArenaAsUsed(arena);
+            cleanupArena(arena, journal);
         }
     }
+    
+    /**
+     * Frees a template arena once the copy its last game was played on has been unloaded and deleted
+     */
+    public void releaseArenaCopy(Arena arena) {
+        activeArenas.remove(arena);
+    }
+    
+    /**
+     * Moves an arena to the back of the available list so arenas take turns
+     */
+    private void rotateArena(Arena arena) {
+        if (!availableArenas.remove(arena)) return;
+        
+        availableArenas.add(arena);
+        arenaStore.rotated(arena);
+        compactArenaStore();
+    }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.utils.LavaMode;
+import net.fliuxx.lavaRise.utils.LavaPlacement;
+import net.fliuxx.lavaRise.utils.MessageTemplate;
+import net.fliuxx.lavaRise.utils.Settings;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
@@ -8,6 +12,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages configuration files for the LavaRise plugin
@@ -19,7 +24,11 @@ public class ConfigManager {
     private final LavaRise plugin;
     private FileConfiguration messagesConfig;
     private File messagesFile;
-    private final Map<String, String> messageCache = new HashMap<>();
+    // Replaced as a whole on reload, never modified
+    private volatile Map<String, MessageTemplate> messageTemplates = new HashMap<>();
+    // Placeholders for keys missing from messages.yml, compiled once per key
+    private final Map<String, MessageTemplate> missingTemplates = new ConcurrentHashMap<>();
+    private volatile Settings settings;
     
     public ConfigManager(LavaRise plugin) {
         this.plugin = plugin;
@@ -29,6 +38,12 @@ public class ConfigManager {
         // Save default config if not exists
         plugin.saveDefaultConfig();
         
+        if (!loadSettings()) {
+            // Nothing to fall back to yet, run on the built-in defaults until the config is fixed
+            settings = Settings.load(new YamlConfiguration());
+            plugin.getLogger().severe("Using the default settings until config.yml is fixed and reloaded");
+        }
+        
         // Load messages.yml
         createMessagesConfig();
         loadMessages();
@@ -43,127 +58,241 @@ public class ConfigManager {
     }
     
     private void loadMessages() {
-        messageCache.clear();
-        loadMessagesFromSection("", messagesConfig);
+        Map<String, String> rawMessages = new HashMap<>();
+        loadMessagesFromSection("", messagesConfig, rawMessages);
+        
+        // Compile every message against the new prefix, then swap the whole set in at once
+        String prefix = MessageTemplate.compile(rawMessages.getOrDefault("general.prefix", ""), "").render();
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (Map.Entry<String, String> entry : rawMessages.entrySet()) {
+            templates.put(entry.getKey(), MessageTemplate.compile(entry.getValue(), prefix));
+        }
+        messageTemplates = templates;
     }
     
-    private void loadMessagesFromSection(String prefix, org.bukkit.configuration.ConfigurationSection config) {
+    private void loadMessagesFromSection(String prefix, org.bukkit.configuration.ConfigurationSection config, Map<String, String> messages) {
         for (String key : config.getKeys(false)) {
             String fullKey = prefix.isEmpty() ? key : prefix + "." + key;
             
             if (config.isConfigurationSection(key)) {
-                loadMessagesFromSection(fullKey, config.getConfigurationSection(key));
+                loadMessagesFromSection(fullKey, config.getConfigurationSection(key), messages);
+            } else if (config.isList(key)) {
+                // Multi-line messages like help.commands, sent line by line
+                messages.put(fullKey, String.join("\n", config.getStringList(key)));
             } else {
                 String value = config.getString(key, "");
-                messageCache.put(fullKey, value);
+                messages.put(fullKey, value);
             }
         }
     }
     
-    public String getMessage(String key) {
-        return messageCache.getOrDefault(key, "&c[Missing message: " + key + "]");
+    /**
+     * The compiled message, for callers that render it repeatedly
+     */
+    public MessageTemplate getTemplate(String key) {
+        MessageTemplate template = messageTemplates.get(key);
+        if (template != null) return template;
+        
+        return missingTemplates.computeIfAbsent(key, missing -> MessageTemplate.compile("&c[Missing message: " + missing + "]", ""));
     }
     
-    public String getMessage(String key, String... replacements) {
-        String message = getMessage(key);
-        
-        for (int i = 0; i < replacements.length; i += 2) {
-            if (i + 1 < replacements.length) {
-                message = message.replace(replacements[i], replacements[i + 1]);
-            }
-        }
-        
-        return message;
+    /**
+     * The message with colours translated and placeholders filled in, ready to send
+     */
+    public String format(String key, String... replacements) {
+        return getTemplate(key).render(replacements);
+    }
+    
+    /**
+     * Like {@link #format(String, String...)} with general.prefix in front
+     */
+    public String formatPrefixed(String key, String... replacements) {
+        return getTemplate(key).renderPrefixed(replacements);
     }
     
-    public void reloadConfigs() {
+    /**
+     * Reloads config.yml and messages.yml
+     * 
+     * @return false when config.yml has invalid values; the previous settings are kept then
+     */
+    public boolean reloadConfigs() {
         plugin.reloadConfig();
+        boolean valid = loadSettings();
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
         loadMessages();
+        return valid;
     }
     
-    // Configuration getters
+    /**
+     * Validates config.yml into a new settings snapshot and publishes it
+     */
+    private boolean loadSettings() {
+        try {
+            settings = Settings.load(plugin.getConfig());
+            return true;
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().severe("Invalid config.yml: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * The current settings. Hot paths read this once and use the plain fields.
+     */
+    public Settings getSettings() {
+        return settings;
+    }
+    
+    // Configuration getters, all read from the current settings snapshot
     public int getMinPlayers() {
-        return plugin.getConfig().getInt("game.min_players", 2);
+        return settings.getMinPlayers();
     }
     
     public int getMaxPlayers() {
-        return plugin.getConfig().getInt("game.max_players", 20);
+        return settings.getMaxPlayers();
+    }
+    
+    public int getMaxConcurrentGames() {
+        return settings.getMaxConcurrentGames();
     }
     
     public int getInitialCountdown() {
-        return plugin.getConfig().getInt("game.initial_countdown", 60);
+        return settings.getInitialCountdown();
     }
     
     public int getPvpCountdown() {
-        return plugin.getConfig().getInt("game.pvp_countdown", 180);
+        return settings.getPvpCountdown();
     }
     
     public int getLavaRiseInterval() {
-        return plugin.getConfig().getInt("game.lava_rise_interval", 5);
+        return settings.getLavaRiseInterval();
     }
     
     public int getLavaRiseAmount() {
-        return plugin.getConfig().getInt("game.lava_rise_amount", 1);
+        return settings.getLavaRiseAmount();
     }
     
     public int getStartingLavaLevel() {
-        return plugin.getConfig().getInt("game.starting_lava_level", 0);
+        return settings.getStartingLavaLevel();
+    }
+    
+    public int getLavaMaxBlocksPerTick() {
+        return settings.getLavaMaxBlocksPerTick();
+    }
+    
+    public int getLavaMaxMicrosPerTick() {
+        return settings.getLavaMaxMicrosPerTick();
+    }
+    
+    public LavaPlacement getLavaPlacement() {
+        return settings.getLavaPlacement();
+    }
+    
+    public int getLavaDamageInterval() {
+        return settings.getLavaDamageInterval();
+    }
+    
+    public double getLavaDamageAmount() {
+        return settings.getLavaDamageAmount();
+    }
+    
+    public int getLavaFireTicks() {
+        return settings.getLavaFireTicks();
+    }
+    
+    public int getLavaLethalDepth() {
+        return settings.getLavaLethalDepth();
+    }
+    
+    public LavaMode getDefaultLavaMode() {
+        return settings.getDefaultLavaMode();
     }
     
     public String getWorldName() {
-        return plugin.getConfig().getString("world.name", "lavarise_world");
+        return settings.getWorldName();
+    }
+    
+    public boolean isWorldTemplateEnabled() {
+        return settings.isWorldTemplateEnabled();
+    }
+    
+    public String getWorldTemplateName() {
+        return settings.getWorldTemplateName();
     }
     
     public int getBorderInitialSize() {
-        return plugin.getConfig().getInt("world.border_initial_size", 200);
+        return settings.getBorderInitialSize();
     }
     
     public int getBorderFinalSize() {
-        return plugin.getConfig().getInt("world.border_final_size", 20);
+        return settings.getBorderFinalSize();
     }
     
     public int getBorderShrinkTime() {
-        return plugin.getConfig().getInt("world.border_shrink_time", 600);
+        return settings.getBorderShrinkTime();
     }
     
     public int getSpawnHeight() {
-        return plugin.getConfig().getInt("world.spawn_height", 100);
+        return settings.getSpawnHeight();
     }
     
     public int getMaxHeight() {
-        return plugin.getConfig().getInt("world.max_height", 256);
+        return settings.getMaxHeight();
+    }
+    
+    public int getArenaSetupCount() {
+        return settings.getArenaSetupCount();
+    }
+    
+    public int getArenaSetupCandidates() {
+        return settings.getArenaSetupCandidates();
+    }
+    
+    public int getArenaSampleStride() {
+        return settings.getArenaSampleStride();
+    }
+    
+    public double getArenaMaxWaterRatio() {
+        return settings.getArenaMaxWaterRatio();
     }
     
     public String getSpawnWorld() {
-        return plugin.getConfig().getString("teleport.spawn_world", "world");
+        return settings.getSpawnWorld();
     }
     
     public double getSpawnX() {
-        return plugin.getConfig().getDouble("teleport.spawn_x", 0);
+        return settings.getSpawnX();
     }
     
     public double getSpawnY() {
-        return plugin.getConfig().getDouble("teleport.spawn_y", 100);
+        return settings.getSpawnY();
     }
     
     public double getSpawnZ() {
-        return plugin.getConfig().getDouble("teleport.spawn_z", 0);
+        return settings.getSpawnZ();
     }
     
     public int getGameSpreadDistance() {
-        return plugin.getConfig().getInt("teleport.game_spread_distance", 50);
+        return settings.getGameSpreadDistance();
+    }
+    
+    public int getTeleportBatchSize() {
+        return settings.getTeleportBatchSize();
+    }
+    
+    public int getSpawnSpacing() {
+        return settings.getSpawnSpacing();
     }
     
     public boolean isScoreboardEnabled() {
-        return plugin.getConfig().getBoolean("scoreboard.enabled", true);
+        return settings.isScoreboardEnabled();
     }
     
     public boolean isBossBarEnabled() {
-        return plugin.getConfig().getBoolean("bossbar.enabled", true);
+        return settings.isBossBarEnabled();
     }
     
     public int getScoreboardUpdateInterval() {
-        return plugin.getConfig().getInt("scoreboard.update_interval", 20);
+        return settings.getScoreboardUpdateInterval();
     }
 }
@@ -1,420 +1,291 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
-import net.fliuxx.lavaRise.tasks.CountdownTask;
-import net.fliuxx.lavaRise.tasks.LavaRiseTask;
-import net.fliuxx.lavaRise.utils.GameState;
+import net.fliuxx.lavaRise.listeners.ArenaPhysicsListener;
+import net.fliuxx.lavaRise.listeners.PlayerListener;
+import net.fliuxx.lavaRise.utils.Arena;
 import org.bukkit.*;
-import org.bukkit.boss.BarColor;
-import org.bukkit.boss.BarStyle;
-import org.bukkit.boss.BossBar;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
-import org.bukkit.scoreboard.DisplaySlot;
-import org.bukkit.scoreboard.Objective;
-import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
 
 import java.util.*;
 
 /**
- * Manages the overall game state and logic for LavaRise
+ * Keeps track of the running LavaRise games. Every game is a {@link GameSession} on its own arena;
+ * events are routed to their session by player or by arena chunk.
+ * The game listeners are only registered while at least one game runs.
  * 
  * @author Fl1uxxNoob
  */
 public class GameManager {
     
-    private final LavaRise plugin;
-    private GameState currentState;
-    private final Set<UUID> alivePlayers;
-    private final Set<UUID> spectators;
-    
-    private BossBar bossBar;
-    private Scoreboard scoreboard;
-    private Objective objective;
-    
-    private BukkitTask countdownTask;
-    private BukkitTask lavaTask;
-    private BukkitTask scoreboardTask;
+    // Games are spread over the ticks of one second
+    static final int PHASE_SLOTS = 20;
     
-    private int gameTime;
-    private boolean pvpEnabled;
+    private final LavaRise plugin;
+    private final Map<String, GameSession> sessions;
+    private final Collection<GameSession> sessionsView;
+    private final Map<UUID, GameSession> sessionsByPlayer;
+    private final Map<UUID, Map<Long, List<GameSession>>> sessionsByChunk;
+    private final List<Listener> gameListeners;
+    private boolean listenersRegistered;
     
     public GameManager(LavaRise plugin) {
         this.plugin = plugin;
-        this.currentState = GameState.WAITING;
-        this.alivePlayers = new HashSet<>();
-        this.spectators = new HashSet<>();
-        this.gameTime = 0;
-        this.pvpEnabled = false;
-        
-        setupScoreboard();
-        setupBossBar();
+        this.sessions = new LinkedHashMap<>();
+        this.sessionsView = Collections.unmodifiableCollection(sessions.values());
+        this.sessionsByPlayer = new HashMap<>();
+        this.sessionsByChunk = new HashMap<>();
+        this.gameListeners = Arrays.asList(new PlayerListener(plugin), new ArenaPhysicsListener(plugin));
+        this.listenersRegistered = false;
     }
     
-    private void setupScoreboard() {
-        if (!plugin.getConfigManager().isScoreboardEnabled()) return;
-        
-        scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
-        objective = scoreboard.registerNewObjective("lavarise", "dummy", 
-            ChatColor.translateAlternateColorCodes('&', plugin.getConfigManager().getMessage("scoreboard.title")));
-        objective.setDisplaySlot(DisplaySlot.SIDEBAR);
-    }
-    
-    private void setupBossBar() {
-        if (!plugin.getConfigManager().isBossBarEnabled()) return;
-        
-        bossBar = Bukkit.createBossBar("LavaRise", BarColor.RED, BarStyle.SOLID);
+    /**
+     * Whether another game may start next to the running ones
+     */
+    public boolean canStartGame() {
+        return sessions.size() < plugin.getConfigManager().getMaxConcurrentGames();
     }
     
+    /**
+     * Starts a game on the next free arena with the online players that are not in a game yet
+     * 
+     * @return false when too few players are free or no arena is available
+     */
     public boolean startGame() {
-        if (currentState != GameState.WAITING) {
-            return false;
-        }
-        
-        // Check minimum players
-        Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
-        if (onlinePlayers.size() < plugin.getConfigManager().getMinPlayers()) {
+        if (!canStartGame()) {
             return false;
         }
         
-        // Reset all game state
-        resetGameState();
-        
-        // Initialize game
-        currentState = GameState.STARTING;
-        alivePlayers.clear();
-        spectators.clear();
-        gameTime = 0;
-        pvpEnabled = false;
-        
-        // Add all online players to the game
-        for (Player player : onlinePlayers) {
-            alivePlayers.add(player.getUniqueId());
-            if (bossBar != null) {
-                bossBar.addPlayer(player);
-            }
-            if (scoreboard != null) {
-                player.setScoreboard(scoreboard);
+        // Players already playing or spectating keep their game
+        List<Player> players = new ArrayList<>();
+        int maxPlayers = plugin.getConfigManager().getMaxPlayers();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (players.size() >= maxPlayers) break;
+            if (!sessionsByPlayer.containsKey(player.getUniqueId())) {
+                players.add(player);
             }
         }
         
-        // Get next available arena
-        if (!plugin.getWorldManager().selectNextArena()) {
-            currentState = GameState.WAITING;
+        // Check minimum players
+        if (players.size() < plugin.getConfigManager().getMinPlayers()) {
             return false;
         }
         
-        // Teleport players to game arena
-        plugin.getPlayerManager().teleportPlayersToGame();
-        
-        // Start initial countdown
-        startInitialCountdown();
-        
-        // Start scoreboard updates
-        startScoreboardUpdates();
+        Arena arena = plugin.getArenaManager().acquireNextArena();
+        if (arena == null) {
+            plugin.getLogger().severe("No available arenas! Use /lavarise setupworld to create new arenas.");
+            return false;
+        }
         
-        // Broadcast game start
-        broadcastMessage(plugin.getConfigManager().getMessage("game.started"));
+        GameSession session = new GameSession(plugin, arena, nextPhase());
+        sessions.put(arena.getId(), session);
+        updateListeners();
+        session.start(players);
         
         return true;
     }
     
-    private void resetGameState() {
-        // Reset lava manager
-        plugin.getLavaManager().resetLavaLevel();
-        
-        // Cancel any running tasks
-        if (countdownTask != null) {
-            countdownTask.cancel();
-            countdownTask = null;
-        }
-        if (lavaTask != null) {
-            lavaTask.cancel();
-            lavaTask = null;
-        }
-        if (scoreboardTask != null) {
-            scoreboardTask.cancel();
-            scoreboardTask = null;
-        }
-        
-        // Reset boss bar
-        if (bossBar != null) {
-            bossBar.removeAll();
-            bossBar.setTitle("");
-            bossBar.setVisible(false);
+    /**
+     * The tick phase furthest away from the phases of the running games
+     */
+    private int nextPhase() {
+        int bestPhase = 0;
+        int bestDistance = -1;
+        for (int phase = 0; phase < PHASE_SLOTS; phase++) {
+            int distance = PHASE_SLOTS;
+            for (GameSession session : sessions.values()) {
+                int gap = Math.abs(phase - session.getPhase());
+                distance = Math.min(distance, Math.min(gap, PHASE_SLOTS - gap));
+            }
+            if (distance > bestDistance) {
+                bestPhase = phase;
+                bestDistance = distance;
+            }
         }
+        return bestPhase;
     }
     
-    public void stopGame() {
-        if (currentState == GameState.WAITING) return;
-        
-        // Cancel all tasks
-        if (countdownTask != null) {
-            countdownTask.cancel();
-            countdownTask = null;
-        }
-        if (lavaTask != null) {
-            lavaTask.cancel();
-            lavaTask = null;
-        }
-        if (scoreboardTask != null) {
-            scoreboardTask.cancel();
-            scoreboardTask = null;
-        }
+    public void stopGame(GameSession session) {
+        if (!session.isRunning()) return;
         
-        // Mark current arena as used and clean it up
-        plugin.getArenaManager().finishCurrentGame();
-        
-        // Reset game state
-        currentState = GameState.WAITING;
-        gameTime = 0;
-        pvpEnabled = false;
-        
-        // Teleport all players back to spawn
-        plugin.getPlayerManager().teleportAllToSpawn();
-        
-        // Clear boss bar and scoreboard
-        if (bossBar != null) {
-            bossBar.removeAll();
-            bossBar.setTitle("");
-            bossBar.setVisible(false);
+        session.stop();
+        removeSession(session);
+    }
+    
+    public void stopAllGames() {
+        for (GameSession session : new ArrayList<>(sessions.values())) {
+            stopGame(session);
         }
-        
-        // Reset scoreboards
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+    }
+    
+    /**
+     * Moves a player into a game as spectator. Alive players cannot leave their game this way.
+     */
+    public void addSpectator(Player player, GameSession session) {
+        GameSession current = sessionsByPlayer.get(player.getUniqueId());
+        if (current != null && current != session) {
+            if (current.isAlive(player.getUniqueId())) {
+                player.sendMessage(plugin.getConfigManager().format("game.already_in_game"));
+                return;
+            }
+            current.removeSpectator(player);
         }
         
-        // Clear player sets
-        alivePlayers.clear();
-        spectators.clear();
-        
-        // Clean up world
-        plugin.getWorldManager().cleanup();
-        
-        // Broadcast game end
-        broadcastMessage(plugin.getConfigManager().getMessage("game.game_ended"));
+        session.addSpectator(player);
     }
     
-    private void startInitialCountdown() {
-        int countdown = plugin.getConfigManager().getInitialCountdown();
-        
-        countdownTask = new CountdownTask(plugin, countdown, 
-            () -> {
-                // On countdown finish - start lava rising
-                currentState = GameState.ACTIVE;
-                
-                // Clear boss bar countdown message
-                if (bossBar != null) {
-                    bossBar.setTitle("");
-                    bossBar.setVisible(false);
-                }
-                
-                startLavaRising();
-                startPvpCountdown();
-            },
-            (timeLeft) -> {
-                // Update boss bar and broadcast
-                if (bossBar != null) {
-                    bossBar.setVisible(true);
-                    updateBossBar(plugin.getConfigManager().getMessage("countdown.game_start", "%time%", formatTime(timeLeft)));
-                }
-                
-                if (timeLeft <= 10 || timeLeft % 10 == 0) {
-                    broadcastMessage(plugin.getConfigManager().getMessage("game.starting", "%seconds%", String.valueOf(timeLeft)));
+    void removeSession(GameSession session) {
+        sessions.remove(session.getArena().getId(), session);
+        updateListeners();
+        sessionsByPlayer.values().removeIf(mapped -> mapped == session);
+        
+        if (session.getWorld() != null) {
+            Map<Long, List<GameSession>> chunks = sessionsByChunk.get(session.getWorld().getUID());
+            if (chunks != null) {
+                chunks.values().removeIf(mapped -> {
+                    mapped.remove(session);
+                    return mapped.isEmpty();
+                });
+                if (chunks.isEmpty()) {
+                    sessionsByChunk.remove(session.getWorld().getUID());
                 }
             }
-        ).runTaskTimer(plugin, 0L, 20L);
+        }
     }
     
-    private void startLavaRising() {
-        lavaTask = new LavaRiseTask(plugin).runTaskTimer(plugin, 0L, 
-            plugin.getConfigManager().getLavaRiseInterval() * 20L);
-        
-        broadcastMessage(plugin.getConfigManager().getMessage("game.lava_rising", 
-            "%level%", String.valueOf(plugin.getLavaManager().getCurrentLevel())));
+    /**
+     * Registers the game listeners when the first game starts and drops them after the last one,
+     * so the server pays nothing for LavaRise while no game runs
+     */
+    private void updateListeners() {
+        boolean active = !sessions.isEmpty();
+        if (active == listenersRegistered) return;
+        
+        for (Listener listener : gameListeners) {
+            if (active) {
+                plugin.getServer().getPluginManager().registerEvents(listener, plugin);
+            } else {
+                HandlerList.unregisterAll(listener);
+            }
+        }
+        listenersRegistered = active;
     }
     
-    private void startPvpCountdown() {
-        int pvpCountdown = plugin.getConfigManager().getPvpCountdown();
-        
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            pvpEnabled = true;
-            currentState = GameState.PVP_ENABLED;
-            broadcastMessage(plugin.getConfigManager().getMessage("game.pvp_enabled"));
-        }, pvpCountdown * 20L);
+    void trackPlayer(UUID uuid, GameSession session) {
+        sessionsByPlayer.put(uuid, session);
     }
     
-    private void startScoreboardUpdates() {
-        if (!plugin.getConfigManager().isScoreboardEnabled()) return;
-        
-        scoreboardTask = Bukkit.getScheduler().runTaskTimer(plugin, 
-            this::updateScoreboard, 
-            0L, 
-            plugin.getConfigManager().getScoreboardUpdateInterval());
+    void untrackPlayer(UUID uuid, GameSession session) {
+        sessionsByPlayer.remove(uuid, session);
     }
     
-    private void updateScoreboard() {
-        if (objective == null) return;
-        
-        // Clear existing scores
-        for (String entry : scoreboard.getEntries()) {
-            scoreboard.resetScores(entry);
-        }
-        
-        int score = 10;
-        
-        // Players alive
-        String playersText = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("scoreboard.players_alive", "%count%", String.valueOf(alivePlayers.size())));
-        objective.getScore(playersText).setScore(score--);
-        
-        // Lava level
-        String lavaText = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("scoreboard.lava_level", "%level%", String.valueOf(plugin.getLavaManager().getCurrentLevel())));
-        objective.getScore(lavaText).setScore(score--);
-        
-        // Game time
-        String timeText = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("scoreboard.game_time", "%time%", formatTime(gameTime)));
-        objective.getScore(timeText).setScore(score--);
-        
-        // PvP status
-        String pvpStatus = pvpEnabled ? 
-            plugin.getConfigManager().getMessage("status.pvp_enabled") : 
-            plugin.getConfigManager().getMessage("status.pvp_disabled");
-        String pvpText = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("scoreboard.pvp_status", "%status%", pvpStatus));
-        objective.getScore(pvpText).setScore(score--);
-        
-        // Border size
-        World gameWorld = plugin.getWorldManager().getGameWorld();
-        if (gameWorld != null) {
-            String borderText = ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("scoreboard.border_size", "%size%", String.valueOf((int)gameWorld.getWorldBorder().getSize())));
-            objective.getScore(borderText).setScore(score--);
+    /**
+     * Routes block events in the chunks under the session's arena to the session. Arenas may touch,
+     * so an edge chunk can be shared with the arena next to it.
+     */
+    void registerArenaChunks(GameSession session) {
+        Map<Long, List<GameSession>> chunks = sessionsByChunk.computeIfAbsent(session.getWorld().getUID(), k -> new HashMap<>());
+        
+        Arena arena = session.getArena();
+        int radius = arena.getSize() / 2;
+        int minChunkX = (arena.getCenter().getBlockX() - radius) >> 4;
+        int maxChunkX = (arena.getCenter().getBlockX() + radius) >> 4;
+        int minChunkZ = (arena.getCenter().getBlockZ() - radius) >> 4;
+        int maxChunkZ = (arena.getCenter().getBlockZ() + radius) >> 4;
+        
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = minChunkZ; z <= maxChunkZ; z++) {
+                chunks.computeIfAbsent(chunkKey(x, z), k -> new ArrayList<>(1)).add(session);
+            }
         }
-        
-        gameTime++;
     }
     
-    private void updateBossBar(String message) {
-        if (bossBar == null) return;
-        
-        bossBar.setTitle(ChatColor.translateAlternateColorCodes('&', message));
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
     }
     
-    public void eliminatePlayer(Player player) {
-        if (!alivePlayers.contains(player.getUniqueId())) return;
-        
-        alivePlayers.remove(player.getUniqueId());
-        spectators.add(player.getUniqueId());
-        
-        // Set to spectator mode
-        player.setGameMode(GameMode.SPECTATOR);
-        
-        // Send elimination message
-        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("game.eliminated")));
-        
-        // Check for winner
-        checkForWinner();
+    // Lookups
+    public GameSession getSession(Player player) {
+        return sessionsByPlayer.get(player.getUniqueId());
     }
     
-    private void checkForWinner() {
-        if (alivePlayers.size() == 1) {
-            // We have a winner!
-            Player winner = Bukkit.getPlayer(alivePlayers.iterator().next());
-            if (winner != null) {
-                broadcastMessage(plugin.getConfigManager().getMessage("game.winner", "%player%", winner.getName()));
-            }
-            
-            // End game after a delay
-            currentState = GameState.ENDING;
-            Bukkit.getScheduler().runTaskLater(plugin, this::stopGame, 100L); // 5 seconds
-        } else if (alivePlayers.isEmpty()) {
-            // No winners (shouldn't happen but just in case)
-            stopGame();
-        }
+    public GameSession getSession(UUID uuid) {
+        return sessionsByPlayer.get(uuid);
     }
     
-    public void addSpectator(Player player) {
-        if (currentState == GameState.WAITING) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("game.not_running")));
-            return;
-        }
+    /**
+     * The game whose arena contains the block, or null
+     */
+    public GameSession getSession(Block block) {
+        if (sessionsByChunk.isEmpty()) return null;
         
-        spectators.add(player.getUniqueId());
+        Map<Long, List<GameSession>> chunks = sessionsByChunk.get(block.getWorld().getUID());
+        if (chunks == null) return null;
         
-        // Teleport to game world
-        World gameWorld = plugin.getWorldManager().getGameWorld();
-        if (gameWorld != null) {
-            player.teleport(gameWorld.getSpawnLocation());
-        }
+        List<GameSession> candidates = chunks.get(chunkKey(block.getX() >> 4, block.getZ() >> 4));
+        if (candidates == null) return null;
         
-        // Set to spectator mode
-        player.setGameMode(GameMode.SPECTATOR);
+        if (candidates.size() == 1) return candidates.get(0);
         
-        // Add to boss bar and scoreboard
-        if (bossBar != null) {
-            bossBar.addPlayer(player);
-        }
-        if (scoreboard != null) {
-            player.setScoreboard(scoreboard);
+        // In a chunk shared by two arenas the block belongs to the one whose border holds it
+        for (GameSession session : candidates) {
+            if (session.getArena().isWithinBounds(block.getX(), block.getZ())) return session;
         }
-        
-        player.sendMessage(ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("game.joined_spectator")));
+        return candidates.get(0);
     }
     
-    private void broadcastMessage(String message) {
-        String formattedMessage = ChatColor.translateAlternateColorCodes('&', 
-            plugin.getConfigManager().getMessage("general.prefix") + message);
-            
-        for (UUID uuid : alivePlayers) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null) {
-                player.sendMessage(formattedMessage);
-            }
-        }
-        
-        for (UUID uuid : spectators) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null) {
-                player.sendMessage(formattedMessage);
-            }
-        }
+    /**
+     * Whether a running game has its arena in this world; the first check of every world-bound listener
+     */
+    public boolean isArenaWorld(World world) {
+        return sessionsByChunk.containsKey(world.getUID());
     }
     
-    private String formatTime(int seconds) {
-        int minutes = seconds / 60;
-        int remainingSeconds = seconds % 60;
-        return String.format("%02d:%02d", minutes, remainingSeconds);
+    /**
+     * The game running on the arena with this id, or null
+     */
+    public GameSession getSession(String arenaId) {
+        for (GameSession session : sessions.values()) {
+            if (session.getArena().getId().equalsIgnoreCase(arenaId)) return session;
+        }
+        return null;
     }
     
-    // Getters
-    public GameState getCurrentState() {
-        return currentState;
+    /**
+     * The longest running game, joined by players who do not pick one
+     */
+    public GameSession getDefaultSession() {
+        return sessions.isEmpty() ? null : sessions.values().iterator().next();
     }
     
-    public boolean isGameActive() {
-        return currentState != GameState.WAITING && currentState != GameState.ENDED;
+    public Collection<GameSession> getSessions() {
+        return sessionsView;
     }
     
-    public boolean isPvpEnabled() {
-        return pvpEnabled;
+    public List<String> getSessionIds() {
+        return new ArrayList<>(sessions.keySet());
     }
     
-    public Set<UUID> getAlivePlayers() {
-        return new HashSet<>(alivePlayers);
+    public boolean isGameActive() {
+        return !sessions.isEmpty();
     }
     
-    public Set<UUID> getSpectators() {
-        return new HashSet<>(spectators);
+    public int getAlivePlayerCount() {
+        int count = 0;
+        for (GameSession session : sessions.values()) {
+            count += session.getAlivePlayerCount();
+        }
+        return count;
     }
     
-    public int getAlivePlayerCount() {
-        return alivePlayers.size();
+    public int getSpectatorCount() {
+        int count = 0;
+        for (GameSession session : sessions.values()) {
+            count += session.getSpectatorCount();
+        }
+        return count;
     }
 }
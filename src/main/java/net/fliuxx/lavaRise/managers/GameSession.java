@@ -0,0 +1,631 @@
+package net.fliuxx.lavaRise.managers;
+
+import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.tasks.BorderTask;
+import net.fliuxx.lavaRise.tasks.CountdownTask;
+import net.fliuxx.lavaRise.tasks.LavaDamageTask;
+import net.fliuxx.lavaRise.tasks.LavaFillTask;
+import net.fliuxx.lavaRise.tasks.LavaRiseTask;
+import net.fliuxx.lavaRise.tasks.TeleportTask;
+import net.fliuxx.lavaRise.utils.Arena;
+import net.fliuxx.lavaRise.utils.BlockJournal;
+import net.fliuxx.lavaRise.utils.GameAudience;
+import net.fliuxx.lavaRise.utils.GameHud;
+import net.fliuxx.lavaRise.utils.GameState;
+import net.fliuxx.lavaRise.utils.ParticipantIndex;
+import net.fliuxx.lavaRise.utils.Settings;
+import net.fliuxx.lavaRise.utils.Sidebar;
+import net.fliuxx.lavaRise.utils.TimerWheel;
+import org.bukkit.*;
+import org.bukkit.boss.BarColor;
+import org.bukkit.boss.BarStyle;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.bukkit.scoreboard.Scoreboard;
+
+import java.util.*;
+
+/**
+ * A single LavaRise match. Each session owns its arena and world, its lava, timers, players,
+ * scoreboard and boss bar, so several matches can run side by side.
+ * Sessions are created, looked up and stopped through the {@link GameManager}.
+ * 
+ * All timers of a session live on one {@link TimerWheel} advanced by a single driver task.
+ * Each session gets its own phase of the server's tick counter, and its once-per-second timers
+ * are lined up with it, so the work of different games does not land on the same server tick.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class GameSession {
+    
+    // What the boss bar shows
+    private static final int HUD_LOADING = 0;
+    private static final int HUD_COUNTDOWN = 1;
+    private static final int HUD_LAVA = 2;
+    
+    private final LavaRise plugin;
+    private final Arena arena;
+    private final boolean templateCopy;
+    private final LavaManager lavaManager;
+    private GameState currentState;
+    private final ParticipantIndex participants;
+    private final GameAudience audience;
+    
+    private World world;
+    private WorldBorder border;
+    
+    private GameHud hud;
+    private Scoreboard scoreboard;
+    private Sidebar sidebar;
+    
+    private final TimerWheel timers;
+    private final int phase;
+    private BukkitTask driverTask;
+    private int advancedAt;
+    private TeleportTask teleportTask;
+    
+    private int gameTime;
+    private boolean pvpEnabled;
+    
+    // Inputs of the HUD; its texts are only formatted again when one of them changed
+    private int loadingPercent;
+    private int countdownLeft;
+    private long pvpAtTick;
+    private int hudView;
+    private int hudValue;
+    private int hudPvpSeconds;
+    
+    GameSession(LavaRise plugin, Arena arena, int phase) {
+        this.plugin = plugin;
+        this.arena = arena;
+        this.phase = phase;
+        this.advancedAt = -1;
+        this.timers = new TimerWheel(plugin.getLogger());
+        this.templateCopy = plugin.getConfigManager().isWorldTemplateEnabled();
+        this.currentState = GameState.WAITING;
+        this.participants = new ParticipantIndex();
+        this.audience = new GameAudience();
+        this.lavaManager = new LavaManager(plugin, this);
+        this.gameTime = 0;
+        this.pvpEnabled = false;
+        this.loadingPercent = -1;
+        this.pvpAtTick = -1;
+        this.hudView = -1;
+        
+        setupScoreboard();
+        setupBossBar();
+    }
+    
+    private void setupScoreboard() {
+        if (!plugin.getConfigManager().isScoreboardEnabled()) return;
+        
+        scoreboard = Bukkit.getScoreboardManager().getNewScoreboard();
+        sidebar = new Sidebar(scoreboard, "lavarise", 
+            plugin.getConfigManager().format("scoreboard.title"));
+    }
+    
+    private void setupBossBar() {
+        BossBar bossBar = null;
+        if (plugin.getConfigManager().isBossBarEnabled()) {
+            bossBar = Bukkit.createBossBar("LavaRise", BarColor.RED, BarStyle.SOLID);
+            bossBar.setVisible(false);
+        }
+        
+        hud = new GameHud(bossBar);
+    }
+    
+    /**
+     * Adds the players and gets the arena world ready; the game stays STARTING until the arena is loaded
+     */
+    void start(Collection<? extends Player> players) {
+        currentState = GameState.STARTING;
+        
+        // The only scheduler task of this game, every timer below runs off it
+        driverTask = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        
+        for (Player player : players) {
+            participants.setAlive(player.getUniqueId());
+            audience.add(player);
+            plugin.getGameManager().trackPlayer(player.getUniqueId(), this);
+            hud.addPlayer(player);
+            if (scoreboard != null) {
+                player.setScoreboard(scoreboard);
+            }
+        }
+        
+        // Boss bar and action bar follow the game state on every tick
+        timers.schedule(this::updateHud, 1L, 1L);
+        
+        plugin.getWorldManager().prepareArenaWorld(this, preparedWorld -> {
+            if (currentState != GameState.STARTING) return;
+            
+            if (preparedWorld != null) {
+                activateArena(preparedWorld);
+                warmUpArena();
+            } else {
+                abortStart();
+            }
+        });
+    }
+    
+    private void activateArena(World preparedWorld) {
+        // Set the game world to the arena's world
+        arena.bindWorld(preparedWorld);
+        world = preparedWorld;
+        
+        // A template copy belongs to this game alone; arenas sharing a world each show their own border
+        border = templateCopy ? world.getWorldBorder() : Bukkit.createWorldBorder();
+        border.setCenter(arena.getCenter());
+        border.setSize(arena.getSize());
+        
+        timers.schedule(new BorderTask(plugin, this), 
+            plugin.getConfigManager().getBorderShrinkTime() * 20L + phaseDelay(), // Initial delay
+            20L); // Update every second
+        
+        plugin.getGameManager().registerArenaChunks(this);
+        
+        plugin.getLogger().info("Selected arena: " + arena.getId() + " at " + 
+            arena.getCenter().getBlockX() + ", " + arena.getCenter().getBlockZ() + " in " + world.getName());
+    }
+    
+    private void warmUpArena() {
+        broadcastMessage("game.preparing_arena");
+        
+        loadingPercent = 0;
+        
+        // Load every chunk under the initial border before anyone is teleported or lava is placed
+        plugin.getArenaManager().warmUpArena(arena, 
+            percent -> loadingPercent = percent,
+            () -> {
+                if (currentState != GameState.STARTING) return;
+                loadingPercent = 100;
+                
+                // Sampled on the arena's first game only, later games reuse the pool
+                plugin.getArenaManager().prepareSpawnPool(arena, () -> {
+                    if (currentState != GameState.STARTING) return;
+                    beginGame();
+                });
+            });
+    }
+    
+    private void beginGame() {
+        // Build the lava column set and surface for this arena
+        lavaManager.prepareArena(arena);
+        
+        // Teleport players to game arena a few per tick; the countdown only starts once everyone is in
+        teleportTask = plugin.getPlayerManager().teleportPlayersToGame(this, () -> {
+            teleportTask = null;
+            if (currentState != GameState.STARTING) return;
+            
+            // Start initial countdown
+            startInitialCountdown();
+            
+            // Start scoreboard updates
+            startScoreboardUpdates();
+            
+            // Broadcast game start
+            broadcastMessage("game.started");
+        });
+    }
+    
+    private void abortStart() {
+        broadcastMessage("errors.world_creation_failed");
+        audience.flush();
+        currentState = GameState.ENDED;
+        cancelTasks();
+        
+        hud.clear();
+        for (Player player : audience.getPlayers()) {
+            player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+        }
+        
+        participants.clear();
+        audience.clear();
+        plugin.getArenaManager().cancelArena(arena);
+        plugin.getWorldManager().releaseArenaWorld(this);
+        plugin.getGameManager().removeSession(this);
+    }
+    
+    /**
+     * Ends the match, hands the arena back for restoring and sends every participant to spawn.
+     * Called through {@link GameManager#stopGame(GameSession)}.
+     */
+    void stop() {
+        cancelTasks();
+        
+        // Remove any logical lava surface and pending fills, keeping the journal for the rollback
+        BlockJournal journal = lavaManager.takeJournal();
+        lavaManager.resetLavaLevel();
+        
+        // Mark the arena as used and roll back the blocks the lava replaced
+        plugin.getArenaManager().finishGame(arena, journal);
+        
+        currentState = GameState.ENDED;
+        gameTime = 0;
+        pvpEnabled = false;
+        
+        // Broadcast game end while the participants are still known
+        broadcastMessage("game.game_ended");
+        audience.flush();
+        
+        // Teleport the participants back to spawn, which also resets their scoreboard and border;
+        // the world is only let go once all of them have left it
+        plugin.getPlayerManager().teleportPlayersToSpawn(this, 
+            () -> plugin.getWorldManager().releaseArenaWorld(this));
+        
+        // Clear boss bar and action bar
+        hud.clear();
+        
+        // Clear player sets
+        participants.clear();
+        audience.clear();
+    }
+    
+    /**
+     * Runs once per server tick for as long as the game runs
+     */
+    private void tick() {
+        advancedAt = Bukkit.getCurrentTick();
+        timers.advance();
+        
+        // Everything broadcast during this tick reaches each player as one message
+        audience.flush();
+    }
+    
+    /**
+     * Delay until the next server tick of this game's phase, for the first run of a once-per-second timer.
+     * Counted against the server's tick counter: the wheel started on whatever tick the game did.
+     */
+    private long phaseDelay() {
+        // The wheel's next advance is on this tick, unless the driver already ran this tick
+        int nextAdvance = Bukkit.getCurrentTick() + (advancedAt == Bukkit.getCurrentTick() ? 1 : 0);
+        return Math.floorMod(phase - nextAdvance, GameManager.PHASE_SLOTS) + 1;
+    }
+    
+    private void cancelTasks() {
+        timers.cancelAll();
+        if (teleportTask != null) {
+            teleportTask.stop();
+            teleportTask = null;
+        }
+        if (driverTask != null) {
+            driverTask.cancel();
+            driverTask = null;
+        }
+    }
+    
+    private void startInitialCountdown() {
+        int countdown = plugin.getConfigManager().getInitialCountdown();
+        
+        timers.schedule(new CountdownTask(plugin, countdown, 
+            () -> {
+                // On countdown finish - start lava rising
+                currentState = GameState.ACTIVE;
+                countdownLeft = 0;
+                
+                startLavaRising();
+                startPvpCountdown();
+            },
+            (timeLeft) -> {
+                // The boss bar picks the time up on its next tick
+                countdownLeft = timeLeft;
+                
+                if (timeLeft <= 10 || timeLeft % 10 == 0) {
+                    broadcastMessage("game.starting", "%seconds%", String.valueOf(timeLeft));
+                }
+            }
+        ), phaseDelay(), 20L);
+    }
+    
+    private void startLavaRising() {
+        timers.schedule(new LavaRiseTask(plugin, this), phaseDelay(), 
+            plugin.getConfigManager().getLavaRiseInterval() * 20L);
+        timers.schedule(new LavaFillTask(this), 1L, 1L);
+        timers.schedule(new LavaDamageTask(plugin, this), 1L, 1L);
+        
+        broadcastMessage("game.lava_rising", 
+            "%level%", String.valueOf(lavaManager.getCurrentLevel()));
+    }
+    
+    private void startPvpCountdown() {
+        int pvpCountdown = plugin.getConfigManager().getPvpCountdown();
+        
+        pvpAtTick = timers.getTick() + pvpCountdown * 20L;
+        timers.schedule(() -> {
+            pvpEnabled = true;
+            currentState = GameState.PVP_ENABLED;
+            broadcastMessage("game.pvp_enabled");
+        }, pvpCountdown * 20L, 0L);
+    }
+    
+    private void startScoreboardUpdates() {
+        if (!plugin.getConfigManager().isScoreboardEnabled()) return;
+        
+        timers.schedule(this::updateScoreboard, phaseDelay(), 
+            plugin.getConfigManager().getScoreboardUpdateInterval());
+    }
+    
+    private void updateScoreboard() {
+        if (sidebar == null) return;
+        
+        // Only lines whose text changed since the last update are sent
+        int line = 0;
+        
+        // Players alive
+        sidebar.setLine(line++, 
+            plugin.getConfigManager().format("scoreboard.players_alive", "%count%", String.valueOf(participants.getAliveCount())));
+        
+        // Lava level
+        sidebar.setLine(line++, 
+            plugin.getConfigManager().format("scoreboard.lava_level", "%level%", String.valueOf(lavaManager.getCurrentLevel())));
+        
+        // Game time
+        sidebar.setLine(line++, 
+            plugin.getConfigManager().format("scoreboard.game_time", "%time%", formatTime(gameTime)));
+        
+        // PvP status
+        String pvpStatus = pvpEnabled ? 
+            plugin.getConfigManager().format("status.pvp_enabled") :
+            plugin.getConfigManager().format("status.pvp_disabled");
+        sidebar.setLine(line++, 
+            plugin.getConfigManager().format("scoreboard.pvp_status", "%status%", pvpStatus));
+        
+        // Border size
+        if (border != null) {
+            sidebar.setLine(line++, 
+                plugin.getConfigManager().format("scoreboard.border_size", "%size%", String.valueOf((int) border.getSize())));
+        }
+        
+        sidebar.setLineCount(line);
+        gameTime++;
+    }
+    
+    private void updateHud() {
+        if (currentState == GameState.STARTING) {
+            if (countdownLeft > 0) {
+                renderBossBar(HUD_COUNTDOWN, countdownLeft);
+            } else if (loadingPercent >= 0) {
+                renderBossBar(HUD_LOADING, loadingPercent);
+            }
+        } else {
+            renderBossBar(HUD_LAVA, lavaManager.getCurrentLevel());
+        }
+        
+        // PvP countdown on the action bar, whole seconds left
+        int pvpSeconds = pvpEnabled || pvpAtTick < 0 ? 0 : (int) ((pvpAtTick - timers.getTick() + 19) / 20);
+        if (pvpSeconds != hudPvpSeconds) {
+            hudPvpSeconds = pvpSeconds;
+            hud.setActionBar(pvpSeconds > 0 ? plugin.getConfigManager().format("countdown.pvp_start", "%time%", formatTime(pvpSeconds)) : null);
+        }
+        
+        if (hud.tickActionBar()) {
+            for (Player player : audience.getPlayers()) {
+                hud.sendActionBar(player);
+            }
+        }
+    }
+    
+    private void renderBossBar(int view, int value) {
+        if (view == hudView && value == hudValue) return;
+        
+        hudView = view;
+        hudValue = value;
+        switch (view) {
+            case HUD_LOADING:
+                hud.showBossBar(plugin.getConfigManager().format("countdown.arena_loading", "%percent%", String.valueOf(value)), 
+                    value / 100.0);
+                break;
+            case HUD_COUNTDOWN:
+                hud.showBossBar(plugin.getConfigManager().format("countdown.game_start", "%time%", formatTime(value)), 
+                    (double) value / Math.max(1, plugin.getConfigManager().getInitialCountdown()));
+                break;
+            default:
+                // Lava progress from the starting level up to max_height
+                Settings settings = plugin.getConfigManager().getSettings();
+                int startLevel = settings.getStartingLavaLevel();
+                int maxHeight = settings.getMaxHeight();
+                hud.showBossBar(plugin.getConfigManager().format("countdown.lava_progress", 
+                        "%level%", String.valueOf(value), "%max%", String.valueOf(maxHeight)), 
+                    maxHeight > startLevel ? (double) (value - startLevel) / (maxHeight - startLevel) : 1.0);
+                break;
+        }
+    }
+    
+    public void eliminatePlayer(Player player) {
+        if (!participants.isAlive(player.getUniqueId())) return;
+        
+        participants.setSpectator(player.getUniqueId());
+        
+        // Set to spectator mode
+        player.setGameMode(GameMode.SPECTATOR);
+        
+        // Send elimination message
+        player.sendMessage(plugin.getConfigManager().format("game.eliminated"));
+        
+        // Check for winner
+        checkForWinner();
+    }
+    
+    private void checkForWinner() {
+        if (currentState == GameState.ENDING) return;
+        
+        if (participants.getAliveCount() == 1) {
+            // We have a winner!
+            Player winner = Bukkit.getPlayer(participants.getAlive().get(0));
+            if (winner != null) {
+                broadcastMessage("game.winner", "%player%", winner.getName());
+            }
+            
+            // End game after a delay
+            currentState = GameState.ENDING;
+            timers.schedule(() -> plugin.getGameManager().stopGame(this), 100L, 0L); // 5 seconds
+        } else if (participants.getAliveCount() == 0) {
+            // No winners (shouldn't happen but just in case)
+            plugin.getGameManager().stopGame(this);
+        }
+    }
+    
+    public void addSpectator(Player player) {
+        if (participants.isAlive(player.getUniqueId())) return;
+        
+        participants.setSpectator(player.getUniqueId());
+        audience.add(player);
+        plugin.getGameManager().trackPlayer(player.getUniqueId(), this);
+        
+        // Teleport above the arena
+        if (world != null) {
+            player.teleport(getSpectatorLocation());
+            applyBorder(player);
+        }
+        
+        // Set to spectator mode
+        player.setGameMode(GameMode.SPECTATOR);
+        
+        // Add to boss bar and scoreboard
+        hud.addPlayer(player);
+        if (scoreboard != null) {
+            player.setScoreboard(scoreboard);
+        }
+        
+        player.sendMessage(plugin.getConfigManager().format("game.joined_spectator"));
+    }
+    
+    /**
+     * A participant left the server: alive players are eliminated, and the player stays
+     * tracked so rejoining brings them back to this game
+     */
+    public void handleQuit(Player player) {
+        if (participants.isAlive(player.getUniqueId())) {
+            eliminatePlayer(player);
+        }
+        audience.remove(player.getUniqueId());
+    }
+    
+    /**
+     * Lets a spectator leave this game, e.g. to watch another one
+     */
+    void removeSpectator(Player player) {
+        if (!participants.isSpectator(player.getUniqueId())) return;
+        
+        participants.remove(player.getUniqueId());
+        
+        audience.remove(player.getUniqueId());
+        plugin.getGameManager().untrackPlayer(player.getUniqueId(), this);
+        hud.removePlayer(player);
+        player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
+        player.setWorldBorder(null);
+    }
+    
+    /**
+     * Shows this game's border to a player. Only needed when arenas share a world.
+     */
+    public void applyBorder(Player player) {
+        if (border != null && !templateCopy) {
+            player.setWorldBorder(border);
+        }
+    }
+    
+    /**
+     * Above the arena center, where spectators are sent and eliminated players respawn
+     */
+    public Location getSpectatorLocation() {
+        Location center = arena.getCenter();
+        int y = world.getHighestBlockYAt(center.getBlockX(), center.getBlockZ()) + 10;
+        return new Location(world, center.getBlockX() + 0.5, y, center.getBlockZ() + 0.5);
+    }
+    
+    /**
+     * Sends a message from messages.yml, with the prefix, to every participant of this game
+     */
+    public void broadcastMessage(String key, String... replacements) {
+        // Rendered once; the audience sends it with anything else broadcast this tick
+        audience.send(plugin.getConfigManager().formatPrefixed(key, replacements));
+    }
+    
+    private String formatTime(int seconds) {
+        int minutes = seconds / 60;
+        int remainingSeconds = seconds % 60;
+        return String.format("%02d:%02d", minutes, remainingSeconds);
+    }
+    
+    // Getters
+    public Arena getArena() {
+        return arena;
+    }
+    
+    public World getWorld() {
+        return world;
+    }
+    
+    public WorldBorder getBorder() {
+        return border;
+    }
+    
+    public LavaManager getLavaManager() {
+        return lavaManager;
+    }
+    
+    /**
+     * Whether this game is played on a throwaway copy of the template world
+     */
+    public boolean isTemplateCopy() {
+        return templateCopy;
+    }
+    
+    public GameState getCurrentState() {
+        return currentState;
+    }
+    
+    public boolean isRunning() {
+        return currentState != GameState.ENDED;
+    }
+    
+    /**
+     * Server tick, modulo one second, that this game's once-per-second timers run on, see {@link GameManager}
+     */
+    public int getPhase() {
+        return phase;
+    }
+    
+    public boolean isPvpEnabled() {
+        return pvpEnabled;
+    }
+    
+    public boolean isAlive(UUID uuid) {
+        return participants.isAlive(uuid);
+    }
+    
+    public boolean isSpectator(UUID uuid) {
+        return participants.isSpectator(uuid);
+    }
+    
+    /**
+     * Immutable snapshot of the alive players, rebuilt only when someone joins, dies or leaves
+     */
+    public List<UUID> getAlivePlayers() {
+        return participants.getAlive();
+    }
+    
+    /**
+     * Read-only live view of the online participants
+     */
+    public Collection<Player> getAudience() {
+        return audience.getPlayers();
+    }
+    
+    /**
+     * Immutable snapshot of the spectators
+     */
+    public List<UUID> getSpectators() {
+        return participants.getSpectators();
+    }
+    
+    public int getAlivePlayerCount() {
+        return participants.getAliveCount();
+    }
+    
+    public int getSpectatorCount() {
+        return participants.getSpectatorCount();
+    }
+}
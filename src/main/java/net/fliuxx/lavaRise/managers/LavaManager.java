@@ -1,111 +1,335 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
-import org.bukkit.Material;
+import net.fliuxx.lavaRise.utils.Arena;
+import net.fliuxx.lavaRise.utils.ArenaColumns;
+import net.fliuxx.lavaRise.utils.BlockJournal;
+import net.fliuxx.lavaRise.utils.LavaFillEngine;
+import net.fliuxx.lavaRise.utils.LavaFillJob;
+import net.fliuxx.lavaRise.utils.LavaFillPlan;
+import net.fliuxx.lavaRise.utils.LavaMode;
+import net.fliuxx.lavaRise.utils.LavaPlacement;
+import net.fliuxx.lavaRise.utils.LavaSurface;
+import net.fliuxx.lavaRise.utils.Settings;
+import org.bukkit.Bukkit;
 import org.bukkit.World;
-import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Manages lava rising mechanics for LavaRise
+ * Manages the lava rising mechanics of one game session
  * 
  * @author Fl1uxxNoob
  */
 public class LavaManager {
     
     private final LavaRise plugin;
+    private final GameSession session;
+    private final LavaFillEngine fillEngine;
+    private final Deque<LavaFillJob> pendingJobs;
+    private ArenaColumns columns;
     private int currentLavaLevel;
+    private int targetLavaLevel;
+    private LavaFillEngine.FillResult lastFillResult;
+    private int suppressedUpdates;
+    private LavaMode mode;
+    private LavaSurface surface;
+    private LavaFillPlan nextPlan;
+    private BlockJournal journal;
+    
+    // Chunks changed since the snapshots of the plan being computed were taken; null when no plan is in flight
+    private Set<Long> changedSinceCapture;
     
-    public LavaManager(LavaRise plugin) {
+    public LavaManager(LavaRise plugin, GameSession session) {
         this.plugin = plugin;
+        this.session = session;
+        this.fillEngine = new LavaFillEngine();
+        this.pendingJobs = new ArrayDeque<>();
         this.currentLavaLevel = plugin.getConfigManager().getStartingLavaLevel();
+        this.targetLavaLevel = currentLavaLevel;
+        this.mode = LavaMode.BLOCKS;
     }
     
+    /**
+     * Queues the next lava layer. The blocks are written over the following ticks by
+     * {@link #tickFill()} and the lava level only advances once the layer is complete.
+     */
     public void raiseLava() {
-        World gameWorld = plugin.getWorldManager().getGameWorld();
+        World gameWorld = session.getWorld();
         if (gameWorld == null) {
             plugin.getLogger().warning("Cannot raise lava - game world is null!");
             return;
         }
         
-        int riseAmount = plugin.getConfigManager().getLavaRiseAmount();
-        int maxHeight = plugin.getConfigManager().getMaxHeight();
+        Settings settings = plugin.getConfigManager().getSettings();
+        int riseAmount = settings.getLavaRiseAmount();
+        int maxHeight = settings.getMaxHeight();
         
         // Calculate new lava level
-        int newLevel = Math.min(currentLavaLevel + riseAmount, maxHeight);
+        int newLevel = Math.min(targetLavaLevel + riseAmount, maxHeight);
         
-        if (newLevel <= currentLavaLevel) {
+        if (newLevel <= targetLavaLevel) {
             return; // No change needed
         }
         
-        // Get world border to determine the area to fill
-        double borderSize = gameWorld.getWorldBorder().getSize();
-        int radius = (int) (borderSize / 2);
+        if (!pendingJobs.isEmpty()) {
+            plugin.getLogger().warning("Lava fill is behind by " + getPendingBlocks() + " blocks when the next rise started. " + 
+                "Consider raising lava.max_blocks_per_tick or lava.max_micros_per_tick.");
+        }
         
-        org.bukkit.Location center = gameWorld.getWorldBorder().getCenter();
-        int centerX = center.getBlockX();
-        int centerZ = center.getBlockZ();
+        if (columns == null) {
+            // No arena prepared - fall back to the game's current border
+            org.bukkit.WorldBorder border = session.getBorder() != null ? session.getBorder() : gameWorld.getWorldBorder();
+            org.bukkit.Location center = border.getCenter();
+            columns = new ArenaColumns(center.getBlockX(), center.getBlockZ(), 
+                (int) (border.getSize() / 2));
+        }
         
-        // Fill lava from current level to new level
-        for (int y = currentLavaLevel; y < newLevel; y++) {
-            fillLavaLayer(gameWorld, centerX, centerZ, radius, y);
+        if (mode == LavaMode.LOGICAL) {
+            // Nothing to write - the level moves at once and only the surface displays follow it
+            targetLavaLevel = newLevel;
+            currentLavaLevel = newLevel;
+            if (surface != null) {
+                surface.moveTo(currentLavaLevel);
+            }
+            
+            plugin.getLogger().info("Raised logical lava in arena " + session.getArena().getId() + " to level Y=" + currentLavaLevel + " - " + 
+                (surface != null ? surface.getDisplayCount() : 0) + " surface displays moved");
+            announceLevel();
+            return;
         }
         
-        currentLavaLevel = newLevel;
+        // Use the snapshot plan prepared during the last interval when it covers these layers
+        LavaFillPlan plan = nextPlan != null && nextPlan.covers(targetLavaLevel, newLevel) ? nextPlan : null;
+        nextPlan = null;
         
-        plugin.getLogger().info("Raised lava to level Y=" + currentLavaLevel);
+        // Plan the fill from the queued level to the new level over the live columns only
+        pendingJobs.addLast(fillEngine.createJob(gameWorld, columns, targetLavaLevel, newLevel, 
+            plugin.getConfigManager().getLavaPlacement(), plan, journal));
+        targetLavaLevel = newLevel;
         
-        // Broadcast lava rise message
-        String message = plugin.getConfigManager().getMessage("game.lava_rising", 
-            "%level%", String.valueOf(currentLavaLevel));
+        // Pre-scan the following layers off-thread while this one is being written
+        schedulePlan(gameWorld, targetLavaLevel, Math.min(targetLavaLevel + riseAmount, maxHeight));
+    }
+    
+    private void schedulePlan(World gameWorld, int fromY, int toY) {
+        if (fromY >= toY) return;
+        
+        // Snapshots must be taken on the main thread, everything else runs async
+        LavaFillPlan.Capture capture = LavaFillPlan.capture(gameWorld, columns, fromY, toY);
+        Set<Long> changedChunks = new HashSet<>();
+        changedSinceCapture = changedChunks;
+        
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            LavaFillPlan plan = capture.compute();
+            
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                // Discard plans finished after the game was reset or a newer plan was started
+                if (changedSinceCapture != changedChunks) return;
+                changedSinceCapture = null;
+                
+                // Blocks changed while the plan was computed are not in its snapshots
+                for (long chunk : changedChunks) {
+                    plan.invalidate((int) chunk, (int) (chunk >> 32));
+                }
+                nextPlan = plan;
+            });
+        });
+    }
+    
+    /**
+     * A block of the arena is about to be changed by something other than the fill: a player,
+     * an explosion or lava physics. Its state before the change is journaled, so the rollback
+     * brings back the terrain rather than what stood there when the lava arrived.
+     */
+    public void recordBlockChange(org.bukkit.block.Block block, BlockData before) {
+        if (columns == null || block.getWorld() != session.getWorld()) return;
         
-        for (org.bukkit.entity.Player player : gameWorld.getPlayers()) {
-            player.sendMessage(org.bukkit.ChatColor.translateAlternateColorCodes('&', 
-                plugin.getConfigManager().getMessage("general.prefix") + message));
+        if (journal != null) {
+            journal.record(block.getX(), block.getY(), block.getZ(), before);
         }
+        invalidatePlannedChunk(block);
     }
     
-    private void fillLavaLayer(World world, int centerX, int centerZ, int radius, int y) {
-        // Use a more efficient approach - fill in chunks
-        for (int x = centerX - radius; x <= centerX + radius; x += 16) {
-            for (int z = centerZ - radius; z <= centerZ + radius; z += 16) {
-                // Process chunk by chunk to avoid lag
-                fillLavaChunk(world, x, z, centerX, centerZ, radius, y);
+    /**
+     * Drops the precomputed plans of the chunk containing the block, so it is scanned live instead
+     */
+    public void invalidatePlannedChunk(org.bukkit.block.Block block) {
+        if (columns == null || block.getWorld() != session.getWorld()) return;
+        
+        int chunkX = block.getX() >> 4;
+        int chunkZ = block.getZ() >> 4;
+        
+        if (nextPlan != null) {
+            nextPlan.invalidate(chunkX, chunkZ);
+        }
+        if (changedSinceCapture != null) {
+            changedSinceCapture.add(((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL));
+        }
+        for (LavaFillJob job : pendingJobs) {
+            if (job.getPlan() != null) {
+                job.getPlan().invalidate(chunkX, chunkZ);
             }
         }
     }
     
-    private void fillLavaChunk(World world, int startX, int startZ, int centerX, int centerZ, int radius, int y) {
-        for (int x = startX; x < startX + 16; x++) {
-            for (int z = startZ; z < startZ + 16; z++) {
-                // Check if within border radius
-                double distance = Math.sqrt(Math.pow(x - centerX, 2) + Math.pow(z - centerZ, 2));
-                if (distance <= radius) {
-                    Block block = world.getBlockAt(x, y, z);
-                    
-                    // Replace ALL blocks at this level with lava (complete layer)
-                    // Except for bedrock and other indestructible blocks
-                    Material blockType = block.getType();
-                    if (blockType != Material.BEDROCK && 
-                        blockType != Material.BARRIER && 
-                        blockType != Material.COMMAND_BLOCK &&
-                        blockType != Material.STRUCTURE_BLOCK) {
-                        block.setType(Material.LAVA);
-                    }
-                }
+    /**
+     * Writes queued lava within the configured per-tick budget. Called once per tick.
+     */
+    public void tickFill() {
+        if (pendingJobs.isEmpty()) return;
+        
+        int maxBlocks = plugin.getConfigManager().getLavaMaxBlocksPerTick();
+        long maxNanos = plugin.getConfigManager().getLavaMaxMicrosPerTick() * 1000L;
+        long startTime = System.nanoTime();
+        
+        while (!pendingJobs.isEmpty()) {
+            long remainingNanos = maxNanos - (System.nanoTime() - startTime);
+            if (remainingNanos <= 0) return;
+            
+            LavaFillJob job = pendingJobs.peekFirst();
+            int writtenBefore = job.getBlocksWritten();
+            boolean complete = job.process(maxBlocks, remainingNanos);
+            maxBlocks -= job.getBlocksWritten() - writtenBefore;
+            
+            if (!complete) return;
+            
+            pendingJobs.pollFirst();
+            commitLayer(job);
+            
+            if (maxBlocks <= 0) return;
+        }
+    }
+    
+    private void commitLayer(LavaFillJob job) {
+        lastFillResult = job.getResult();
+        currentLavaLevel = job.getToY();
+        
+        plugin.getLogger().info("Raised lava in arena " + session.getArena().getId() + " to level Y=" + currentLavaLevel + " - " + lastFillResult + 
+            " over " + job.getSlices() + " ticks, " + job.getPlannedChunks() + " chunks from snapshot plan, " + 
+            job.getPlacement() + " placement, " + 
+            suppressedUpdates + " physics events suppressed");
+        suppressedUpdates = 0;
+        
+        announceLevel();
+    }
+    
+    private void announceLevel() {
+        // Broadcast lava rise message to this game only, other arenas may share the world
+        session.broadcastMessage("game.lava_rising", 
+            "%level%", String.valueOf(currentLavaLevel));
+    }
+    
+    /**
+     * Builds the column set and lava mode for the arena about to be played. Called once per game.
+     */
+    public void prepareArena(Arena arena) {
+        org.bukkit.Location center = arena.getCenter();
+        columns = new ArenaColumns(center.getBlockX(), center.getBlockZ(), arena.getSize() / 2);
+        mode = arena.getLavaMode();
+        
+        // Every block replaced by the fill, by lava physics or by players is journaled so the arena
+        // can be rolled back after the game, unless the game runs on a template copy that is thrown away
+        journal = mode == LavaMode.BLOCKS && !session.isTemplateCopy() ? 
+            new BlockJournal(center.getBlockX(), center.getBlockZ()) : null;
+        
+        if (mode == LavaMode.LOGICAL && center.getWorld() != null) {
+            surface = new LavaSurface(center.getWorld());
+            surface.create(columns, currentLavaLevel);
+        }
+    }
+    
+    /**
+     * Drops every column outside the given radius, following the shrinking border.
+     */
+    public void shrinkColumns(int radius) {
+        if (columns != null) {
+            columns.shrink(radius);
+            if (surface != null) {
+                surface.shrink(columns);
             }
         }
     }
     
+    /**
+     * Whether lava physics should be suppressed at this position of the running arena
+     */
+    public boolean isStaticLavaArea(org.bukkit.block.Block block) {
+        if (columns == null || mode == LavaMode.LOGICAL) return false;
+        if (block.getWorld() != session.getWorld()) return false;
+        if (plugin.getConfigManager().getLavaPlacement() != LavaPlacement.STATIC) return false;
+        
+        return columns.isWithinBounds(block.getX(), block.getZ());
+    }
+    
+    public void recordSuppressedUpdate() {
+        suppressedUpdates++;
+    }
+    
+    /**
+     * Hands over the journal of the blocks replaced in this game, leaving none behind
+     */
+    public BlockJournal takeJournal() {
+        BlockJournal taken = journal;
+        journal = null;
+        return taken;
+    }
+    
     public void resetLavaLevel() {
+        pendingJobs.clear();
+        nextPlan = null;
+        changedSinceCapture = null;
+        columns = null;
+        journal = null;
+        suppressedUpdates = 0;
+        mode = LavaMode.BLOCKS;
+        
+        if (surface != null) {
+            surface.remove();
+            surface = null;
+        }
         currentLavaLevel = plugin.getConfigManager().getStartingLavaLevel();
+        targetLavaLevel = currentLavaLevel;
+    }
+    
+    public LavaFillEngine.FillResult getLastFillResult() {
+        return lastFillResult;
+    }
+    
+    /**
+     * Number of block positions queued but not yet filled
+     */
+    public long getPendingBlocks() {
+        long pending = 0;
+        for (LavaFillJob job : pendingJobs) {
+            pending += job.getRemainingBlocks();
+        }
+        return pending;
+    }
+    
+    public boolean isFilling() {
+        return !pendingJobs.isEmpty();
     }
     
     public int getCurrentLevel() {
         return currentLavaLevel;
     }
     
+    public int getTargetLevel() {
+        return targetLavaLevel;
+    }
+    
+    public LavaMode getMode() {
+        return mode;
+    }
+    
     public boolean isAboveLava(org.bukkit.Location location) {
-        return location.getBlockY() > currentLavaLevel;
+        // Lava fills every block below the level
+        return location.getBlockY() >= currentLavaLevel;
     }
     
     public int getDistanceFromLava(org.bukkit.Location location) {
@@ -1,9 +1,17 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.tasks.TeleportTask;
+import net.fliuxx.lavaRise.utils.SpawnPool;
 import org.bukkit.*;
 import org.bukkit.entity.Player;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+
 /**
  * Manages player teleportation and state for LavaRise
  * 
@@ -17,27 +25,53 @@ public class PlayerManager {
         this.plugin = plugin;
     }
     
-    public void teleportPlayersToGame() {
-        World gameWorld = plugin.getWorldManager().getGameWorld();
-        if (gameWorld == null) {
+    /**
+     * Teleports the alive players of a game into its arena, a few per tick
+     * 
+     * @param onComplete runs once every player has arrived or gone offline
+     * @return the running teleport, so the game can stop it when it ends early, or null when nobody could be sent
+     */
+    public TeleportTask teleportPlayersToGame(GameSession session, Runnable onComplete) {
+        if (session.getWorld() == null) {
             plugin.getLogger().severe("Cannot teleport players - game world is null!");
-            return;
+            onComplete.run();
+            return null;
         }
         
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (plugin.getGameManager().getAlivePlayers().contains(player.getUniqueId())) {
-                teleportPlayerToGame(player);
+        List<Player> players = new ArrayList<>();
+        for (UUID uuid : session.getAlivePlayers()) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                players.add(player);
             }
         }
+        
+        TeleportTask task;
+        SpawnPool pool = session.getArena().getSpawnPool();
+        if (pool != null && pool.size() > 0) {
+            // Consecutive pool points lie far apart; each game starts somewhere else in the pool
+            World world = session.getWorld();
+            int[] next = {ThreadLocalRandom.current().nextInt(pool.size())};
+            task = new TeleportTask(plugin, players, 
+                player -> pool.get(world, next[0]++), 
+                UnaryOperator.identity(), 
+                this::resetForGame, 
+                player -> arriveInGame(session, player), 
+                onComplete);
+        } else {
+            // No safe spot was found in the spawn area: fall back to random columns
+            task = new TeleportTask(plugin, players, 
+                player -> plugin.getWorldManager().getRandomSpawnColumn(session), 
+                plugin.getWorldManager()::settleSpawnLocation, 
+                this::resetForGame, 
+                player -> arriveInGame(session, player), 
+                onComplete);
+        }
+        task.start();
+        return task;
     }
     
-    public void teleportPlayerToGame(Player player) {
-        Location spawnLocation = plugin.getWorldManager().getRandomSpawnLocation();
-        if (spawnLocation == null) {
-            plugin.getLogger().severe("Cannot get spawn location for player " + player.getName());
-            return;
-        }
-        
+    private void resetForGame(Player player) {
         // Set player to survival mode
         player.setGameMode(GameMode.SURVIVAL);
         
@@ -52,15 +86,17 @@ public class PlayerManager {
         
         // Clear effects
         player.getActivePotionEffects().clear();
-        
-        // Teleport player
-        player.teleport(spawnLocation);
+    }
+    
+    private void arriveInGame(GameSession session, Player player) {
+        session.applyBorder(player);
         
         // Give starting items (if configured)
         giveStartingItems(player);
         
+        Location location = player.getLocation();
         plugin.getLogger().info("Teleported " + player.getName() + " to game world at " + 
-            spawnLocation.getBlockX() + ", " + spawnLocation.getBlockY() + ", " + spawnLocation.getBlockZ());
+            location.getBlockX() + ", " + location.getBlockY() + ", " + location.getBlockZ());
     }
     
     private void giveStartingItems(Player player) {
@@ -68,26 +104,30 @@ public class PlayerManager {
         // For now, we'll keep it empty as LavaRise typically starts with no items
     }
     
-    public void teleportAllToSpawn() {
-        String spawnWorldName = plugin.getConfigManager().getSpawnWorld();
-        World spawnWorld = Bukkit.getWorld(spawnWorldName);
-        
-        if (spawnWorld == null) {
-            plugin.getLogger().severe("Spawn world '" + spawnWorldName + "' not found!");
-            spawnWorld = Bukkit.getWorlds().get(0); // Fallback to first world
-        }
-        
-        Location spawnLocation = new Location(spawnWorld, 
-            plugin.getConfigManager().getSpawnX(),
-            plugin.getConfigManager().getSpawnY(),
-            plugin.getConfigManager().getSpawnZ());
-        
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            teleportPlayerToSpawn(player, spawnLocation);
-        }
+    /**
+     * Sends the alive players and spectators of a game back to spawn, a few per tick, leaving other games alone
+     * 
+     * @param onComplete runs once every participant has left the arena or gone offline
+     */
+    public void teleportPlayersToSpawn(GameSession session, Runnable onComplete) {
+        Location spawnLocation = getSpawnLocation();
+        
+        new TeleportTask(plugin, session.getAudience(), 
+            player -> spawnLocation, 
+            UnaryOperator.identity(), 
+            this::resetForSpawn, 
+            player -> plugin.getLogger().info("Teleported " + player.getName() + " to spawn"), 
+            onComplete).start();
     }
     
     public void teleportPlayerToSpawn(Player player) {
+        resetForSpawn(player);
+        player.teleport(getSpawnLocation());
+        
+        plugin.getLogger().info("Teleported " + player.getName() + " to spawn");
+    }
+    
+    private Location getSpawnLocation() {
         String spawnWorldName = plugin.getConfigManager().getSpawnWorld();
         World spawnWorld = Bukkit.getWorld(spawnWorldName);
         
@@ -96,15 +136,13 @@ public class PlayerManager {
             spawnWorld = Bukkit.getWorlds().get(0); // Fallback to first world
         }
         
-        Location spawnLocation = new Location(spawnWorld, 
+        return new Location(spawnWorld, 
             plugin.getConfigManager().getSpawnX(),
             plugin.getConfigManager().getSpawnY(),
             plugin.getConfigManager().getSpawnZ());
-            
-        teleportPlayerToSpawn(player, spawnLocation);
     }
     
-    private void teleportPlayerToSpawn(Player player, Location spawnLocation) {
+    private void resetForSpawn(Player player) {
         // Reset player state
         player.setGameMode(GameMode.SURVIVAL);
         player.setHealth(20.0);
@@ -115,28 +153,17 @@ public class PlayerManager {
         // Clear effects
         player.getActivePotionEffects().clear();
         
-        // Reset scoreboard
+        // Reset scoreboard and the arena border
         player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
-        
-        // Teleport
-        player.teleport(spawnLocation);
-        
-        plugin.getLogger().info("Teleported " + player.getName() + " to spawn");
-    }
-    
-    public boolean isPlayerInLava(Player player) {
-        Location location = player.getLocation();
-        Material blockType = location.getBlock().getType();
-        Material belowType = location.subtract(0, 1, 0).getBlock().getType();
-        
-        return blockType == Material.LAVA || belowType == Material.LAVA;
+        player.setWorldBorder(null);
     }
     
     public void handlePlayerDeath(Player player) {
-        if (!plugin.getGameManager().isGameActive()) return;
+        GameSession session = plugin.getGameManager().getSession(player);
+        if (session == null) return;
         
-        if (plugin.getGameManager().getAlivePlayers().contains(player.getUniqueId())) {
-            plugin.getGameManager().eliminatePlayer(player);
+        if (session.isAlive(player.getUniqueId())) {
+            session.eliminatePlayer(player);
         }
     }
 }
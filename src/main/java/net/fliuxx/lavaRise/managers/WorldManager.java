@@ -1,10 +1,15 @@
 package net.fliuxx.lavaRise.managers;
 
 import net.fliuxx.lavaRise.LavaRise;
-import net.fliuxx.lavaRise.tasks.BorderTask;
+import net.fliuxx.lavaRise.utils.Arena;
+import net.fliuxx.lavaRise.utils.WorldFiles;
 import org.bukkit.*;
-import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Manages world creation and manipulation for LavaRise
@@ -14,54 +19,116 @@ import org.bukkit.scheduler.BukkitTask;
 public class WorldManager {
     
     private final LavaRise plugin;
-    private World gameWorld;
-    private BukkitTask borderTask;
+    
+    // Numbers the template copies, so a new game never reuses the folder of one still being deleted
+    private int copyCounter;
     
     public WorldManager(LavaRise plugin) {
         this.plugin = plugin;
     }
     
-    public boolean selectNextArena() {
-        // Get next available arena from ArenaManager
-        net.fliuxx.lavaRise.utils.Arena arena = plugin.getArenaManager().getNextAvailableArena();
-        
-        if (arena == null) {
-            plugin.getLogger().severe("No available arenas! Use /lavarise setupworld to create new arenas.");
-            return false;
-        }
-        
-        // Set the game world to the arena's world
-        gameWorld = arena.getCenter().getWorld();
+    /**
+     * Deletes the template copies of games that were interrupted by a crash, off the main thread
+     */
+    public void deleteLeftoverCopies() {
+        String prefix = plugin.getConfigManager().getWorldName() + "_";
+        File[] leftovers = Bukkit.getWorldContainer().listFiles(file -> 
+            file.isDirectory() && file.getName().startsWith(prefix) && file.getName().matches(".*_game\\d{1,9}"));
+        if (leftovers == null || leftovers.length == 0) return;
         
-        if (gameWorld == null) {
-            plugin.getLogger().severe("Arena world not found!");
-            return false;
+        // Games started while these are being deleted are numbered past them
+        for (File leftover : leftovers) {
+            String name = leftover.getName();
+            copyCounter = Math.max(copyCounter, Integer.parseInt(name.substring(name.lastIndexOf("_game") + 5)));
         }
         
-        // Setup world border for this arena
-        setupWorldBorderForArena(arena);
-        
-        plugin.getLogger().info("Selected arena: " + arena.getId() + " at " + 
-            arena.getCenter().getBlockX() + ", " + arena.getCenter().getBlockZ());
-        return true;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            for (File leftover : leftovers) {
+                deleteWorldFiles(leftover, leftover.getName());
+            }
+            plugin.getLogger().info("Deleted " + leftovers.length + " leftover game worlds");
+        });
     }
     
-    private void setupWorldBorderForArena(net.fliuxx.lavaRise.utils.Arena arena) {
-        if (gameWorld == null) return;
+    /**
+     * Gets the world of the session's arena ready, off the main thread where possible.
+     * In template mode the game is played on a fresh copy of the template world.
+     * 
+     * @param onReady called on the main thread with the world, or null when it could not be loaded;
+     *                not called when the session stops before preparation finishes
+     */
+    public void prepareArenaWorld(GameSession session, Consumer<World> onReady) {
+        Arena arena = session.getArena();
         
-        WorldBorder border = gameWorld.getWorldBorder();
+        if (!session.isTemplateCopy()) {
+            // The arena world is not loaded automatically after a restart
+            World world = arena.getCenter().getWorld();
+            if (world == null && arena.getWorldName() != null) {
+                world = loadWorld(arena.getWorldName());
+            }
+            onReady.accept(world);
+            return;
+        }
         
-        // Set border center to arena center
-        border.setCenter(arena.getCenter());
+        String templateName = plugin.getConfigManager().getWorldTemplateName();
+        String copyName = getCopyName(arena);
+        Path container = Bukkit.getWorldContainer().toPath();
         
-        // Set initial border size
-        border.setSize(arena.getSize());
+        // Setup saves and unloads the template once; it is never saved on the way into a game
+        if (Bukkit.getWorld(templateName) != null) {
+            plugin.getLogger().warning("Template world " + templateName + " is loaded, games are played on its last saved state");
+        }
         
-        // Start border shrinking task
-        startBorderShrinking();
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            boolean copied = false;
+            try {
+                long startTime = System.nanoTime();
+                
+                long bytes = WorldFiles.copyWorld(container.resolve(templateName), container.resolve(copyName));
+                
+                plugin.getLogger().info("Copied template world " + templateName + " to " + copyName + " (" + 
+                    (bytes / (1024 * 1024)) + " MB in " + (System.nanoTime() - startTime) / 1_000_000 + " ms)");
+                copied = true;
+            } catch (NoSuchFileException e) {
+                plugin.getLogger().severe("Template world " + templateName + " not found! Use /lavarise setupworld to create it.");
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not copy template world " + templateName + ": " + e.getMessage());
+            }
+            
+            boolean success = copied;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                // The game was stopped while copying
+                if (!session.isRunning()) {
+                    deleteWorldFilesAsync(copyName, () -> {});
+                    return;
+                }
+                
+                World world = success ? loadWorld(copyName) : null;
+                if (world != null) {
+                    // The copy is thrown away after the game - never write it back
+                    world.setAutoSave(false);
+                    world.setKeepSpawnInMemory(false);
+                }
+                onReady.accept(world);
+            });
+        });
+    }
+    
+    /**
+     * Name of the copy of the template world a game is played on. Numbered per game, as the copy of
+     * the arena's previous game may still be unloading or being deleted when the next one starts.
+     */
+    private String getCopyName(Arena arena) {
+        return plugin.getConfigManager().getWorldName() + "_" + arena.getId() + "_game" + (++copyCounter);
     }
     
-    private void setupWorldSettings() {
+    private World loadWorld(String worldName) {
+        WorldCreator creator = new WorldCreator(worldName);
+        creator.environment(World.Environment.NORMAL);
+        return creator.createWorld();
+    }
+    
+    private void setupWorldSettings(World gameWorld) {
         if (gameWorld == null) return;
         
         // Disable weather
@@ -106,107 +173,90 @@ public class WorldManager {
         return new Location(world, x + 0.5, y + 1, z + 0.5);
     }
     
-    private void setupWorldBorder() {
-        if (gameWorld == null) return;
-        
-        WorldBorder border = gameWorld.getWorldBorder();
-        
-        // Set initial border size
-        int initialSize = plugin.getConfigManager().getBorderInitialSize();
-        border.setSize(initialSize);
-        
-        // Center the border at spawn
-        border.setCenter(gameWorld.getSpawnLocation());
+    /**
+     * @param onDeleted called on the main thread once the files are gone; not called while the plugin is being disabled
+     */
+    private void deleteWorldFilesAsync(String worldName, Runnable onDeleted) {
+        File worldFolder = new File(Bukkit.getWorldContainer(), worldName);
         
-        // Start border shrinking task
-        startBorderShrinking();
-    }
-    
-    private void startBorderShrinking() {
-        if (gameWorld == null) return;
-        
-        borderTask = new BorderTask(plugin, gameWorld).runTaskTimer(plugin, 
-            plugin.getConfigManager().getBorderShrinkTime() * 20L, // Initial delay
-            20L); // Update every second
-    }
-    
-    private void deleteWorld(String worldName) {
-        World world = Bukkit.getWorld(worldName);
-        if (world != null) {
-            // Teleport all players out of the world
-            for (Player player : world.getPlayers()) {
-                player.teleport(Bukkit.getWorlds().get(0).getSpawnLocation());
-            }
-            
-            // Unload the world
-            Bukkit.unloadWorld(world, false);
+        // No more tasks can be scheduled while the plugin is being disabled
+        if (!plugin.isEnabled()) {
+            deleteWorldFiles(worldFolder, worldName);
+            return;
         }
         
-        // Delete world files
-        deleteWorldFiles(worldName);
+        // Give the server a moment to close the region files of a just unloaded world
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            deleteWorldFiles(worldFolder, worldName);
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, onDeleted);
+            }
+        }, 20L);
     }
     
-    private void deleteWorldFiles(String worldName) {
+    private void deleteWorldFiles(File worldFolder, String worldName) {
         try {
-            java.io.File worldFolder = new java.io.File(Bukkit.getWorldContainer(), worldName);
-            if (worldFolder.exists()) {
-                deleteDirectory(worldFolder);
-            }
-        } catch (Exception e) {
+            WorldFiles.deleteTree(worldFolder.toPath());
+        } catch (IOException e) {
             plugin.getLogger().warning("Could not delete world files for " + worldName + ": " + e.getMessage());
         }
     }
     
-    private void deleteDirectory(java.io.File directory) {
-        if (directory.isDirectory()) {
-            java.io.File[] files = directory.listFiles();
-            if (files != null) {
-                for (java.io.File file : files) {
-                    deleteDirectory(file);
-                }
-            }
-        }
-        directory.delete();
-    }
-    
-    public void cleanup() {
-        // Cancel border task
-        if (borderTask != null) {
-            borderTask.cancel();
-            borderTask = null;
+    /**
+     * Lets go of the session's world once its players have left it. A template arena is only
+     * handed back to the arena pool once the copy it was played on is unloaded and deleted.
+     */
+    public void releaseArenaWorld(GameSession session) {
+        World gameWorld = session.getWorld();
+        
+        // Keep a shared arena world: it holds every other arena and is being rolled back
+        if (!session.isTemplateCopy()) return;
+        
+        Arena arena = session.getArena();
+        if (gameWorld == null) {
+            // Never loaded; a copy still being made is deleted by prepareArenaWorld under its own name
+            plugin.getArenaManager().releaseArenaCopy(arena);
+            return;
         }
         
-        // Delete game world
-        if (gameWorld != null) {
-            String worldName = gameWorld.getName();
-            deleteWorld(worldName);
-            gameWorld = null;
+        // Template copy: unload it without saving and delete it off the main thread
+        String worldName = gameWorld.getName();
+        if (Bukkit.unloadWorld(gameWorld, false)) {
+            deleteWorldFilesAsync(worldName, () -> plugin.getArenaManager().releaseArenaCopy(arena));
+        } else {
+            // The next game gets a copy of its own name, so the stuck world cannot get in its way
+            plugin.getLogger().warning("Could not unload game world " + worldName + ", it will be deleted on the next start");
+            plugin.getArenaManager().releaseArenaCopy(arena);
         }
     }
     
-    public World getGameWorld() {
-        return gameWorld;
-    }
-    
-    public Location getRandomSpawnLocation() {
+    /**
+     * Picks a random spawn column around the session's arena; the height is filled in by
+     * {@link #settleSpawnLocation(Location)} once the column's chunk is loaded
+     */
+    public Location getRandomSpawnColumn(GameSession session) {
+        World gameWorld = session.getWorld();
         if (gameWorld == null) return null;
         
-        // Get current arena center instead of world spawn
-        net.fliuxx.lavaRise.utils.Arena arena = plugin.getArenaManager().getCurrentArena();
-        if (arena == null) return null;
-        
-        Location center = arena.getCenter();
+        // Spread around the session's arena center instead of world spawn
+        Location center = session.getArena().getCenter();
         int spread = plugin.getConfigManager().getGameSpreadDistance();
         
         // Generate random coordinates within spread distance
         int x = center.getBlockX() + (int) ((Math.random() - 0.5) * spread * 2);
         int z = center.getBlockZ() + (int) ((Math.random() - 0.5) * spread * 2);
         
-        // Find safe Y coordinate
-        int y = gameWorld.getHighestBlockYAt(x, z);
+        return new Location(gameWorld, x + 0.5, 0, z + 0.5);
+    }
+    
+    /**
+     * Puts a spawn column on a safe height; only call it once the column's chunk is loaded
+     */
+    public Location settleSpawnLocation(Location column) {
+        int y = column.getWorld().getHighestBlockYAt(column.getBlockX(), column.getBlockZ());
         y = Math.max(y, 64);
         y = Math.min(y, plugin.getConfigManager().getMaxHeight() - 10);
         
-        return new Location(gameWorld, x + 0.5, y + 1, z + 0.5);
+        return new Location(column.getWorld(), column.getX(), y + 1, column.getZ());
     }
 }
@@ -0,0 +1,199 @@
+package net.fliuxx.lavaRise.tasks;
+
+import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.utils.ArenaSnapshot;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Task that restores an arena from its snapshot file. Chunks are loaded asynchronously,
+ * diffed against the snapshot off the main thread and only the differing blocks are written,
+ * within a per-tick budget.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaRestoreTask extends BukkitRunnable {
+    
+    // Chunks being loaded or diffed at the same time
+    private static final int MAX_IN_FLIGHT = 4;
+    
+    private final LavaRise plugin;
+    private final World world;
+    private final ArenaSnapshot snapshot;
+    private final Runnable onFinish;
+    private final int maxBlocks;
+    private final long maxNanos;
+    private final Queue<ArenaSnapshot.ChunkDiff> readyDiffs;
+    private final boolean[] appliedChunks;
+    
+    private int nextChunk;
+    private int inFlight;
+    private int chunksDone;
+    private ArenaSnapshot.ChunkDiff currentDiff;
+    private int diffCursor;
+    private long restoredBlocks;
+    private boolean finished;
+    private boolean scheduled;
+    
+    public ArenaRestoreTask(LavaRise plugin, World world, ArenaSnapshot snapshot, Runnable onFinish) {
+        this.plugin = plugin;
+        this.world = world;
+        this.snapshot = snapshot;
+        this.onFinish = onFinish;
+        this.maxBlocks = plugin.getConfigManager().getLavaMaxBlocksPerTick();
+        this.maxNanos = plugin.getConfigManager().getLavaMaxMicrosPerTick() * 1000L;
+        this.readyDiffs = new ConcurrentLinkedQueue<>();
+        this.appliedChunks = new boolean[snapshot.getChunkCount()];
+    }
+    
+    /**
+     * Runs the task every tick, or finishes it right away when the plugin is being disabled
+     */
+    public void start() {
+        if (plugin.isEnabled()) {
+            runTaskTimer(plugin, 1L, 1L);
+            scheduled = true;
+        } else {
+            finishNow();
+        }
+    }
+    
+    @Override
+    public void run() {
+        if (finished) {
+            cancel();
+            return;
+        }
+        
+        requestChunks();
+        
+        if (applyDiffs(maxBlocks, maxNanos) && chunksDone >= appliedChunks.length) {
+            finish();
+            cancel();
+        }
+    }
+    
+    private void requestChunks() {
+        while (inFlight < MAX_IN_FLIGHT && nextChunk < appliedChunks.length) {
+            int chunkIndex = nextChunk++;
+            inFlight++;
+            
+            world.getChunkAtAsync(snapshot.getChunkX(chunkIndex), snapshot.getChunkZ(chunkIndex), true)
+                .thenAccept(chunk -> {
+                    // Completed on the main thread: take the live snapshot here, diff it elsewhere
+                    ChunkSnapshot live = chunk.getChunkSnapshot(false, false, false);
+                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> readyDiffs.add(diffChunk(chunkIndex, live)));
+                })
+                .exceptionally(throwable -> {
+                    plugin.getLogger().warning("Could not load arena chunk for restore: " + throwable.getMessage());
+                    readyDiffs.add(new ArenaSnapshot.ChunkDiff(chunkIndex));
+                    return null;
+                });
+        }
+    }
+    
+    private ArenaSnapshot.ChunkDiff diffChunk(int chunkIndex, ChunkSnapshot live) {
+        try {
+            return snapshot.diffChunk(chunkIndex, live);
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().warning("Could not read arena snapshot chunk " + 
+                snapshot.getChunkX(chunkIndex) + ", " + snapshot.getChunkZ(chunkIndex) + ": " + e.getMessage());
+            return new ArenaSnapshot.ChunkDiff(chunkIndex);
+        }
+    }
+    
+    /**
+     * @return true when every diff received so far has been written
+     */
+    private boolean applyDiffs(int blockBudget, long nanoBudget) {
+        long startTime = System.nanoTime();
+        int written = 0;
+        
+        while (true) {
+            if (currentDiff == null) {
+                currentDiff = readyDiffs.poll();
+                if (currentDiff == null) return true;
+                
+                diffCursor = 0;
+                // Restored synchronously by finishNow in the meantime
+                if (appliedChunks[currentDiff.getChunkIndex()]) {
+                    completeCurrentDiff();
+                    continue;
+                }
+            }
+            
+            Chunk chunk = world.getChunkAt(snapshot.getChunkX(currentDiff.getChunkIndex()), 
+                snapshot.getChunkZ(currentDiff.getChunkIndex()));
+            
+            while (diffCursor < currentDiff.size()) {
+                if (written >= blockBudget || ((written & 63) == 0 && System.nanoTime() - startTime >= nanoBudget)) {
+                    return false;
+                }
+                
+                chunk.getBlock(currentDiff.getX(diffCursor), currentDiff.getY(diffCursor), currentDiff.getZ(diffCursor))
+                    .setBlockData(currentDiff.getData(diffCursor), false);
+                diffCursor++;
+                written++;
+            }
+            
+            restoredBlocks += currentDiff.size();
+            appliedChunks[currentDiff.getChunkIndex()] = true;
+            completeCurrentDiff();
+        }
+    }
+    
+    private void completeCurrentDiff() {
+        currentDiff = null;
+        inFlight--;
+        chunksDone++;
+    }
+    
+    /**
+     * Restores every chunk that is left right away, e.g. when the plugin is disabled mid-restore.
+     * Chunks are loaded and diffed on the calling thread.
+     */
+    public void finishNow() {
+        if (finished) return;
+        
+        // Finish the chunk that was being written
+        if (currentDiff != null) {
+            applyDiffs(Integer.MAX_VALUE, Long.MAX_VALUE);
+        }
+        
+        for (int chunkIndex = 0; chunkIndex < appliedChunks.length; chunkIndex++) {
+            if (appliedChunks[chunkIndex]) continue;
+            
+            Chunk chunk = world.getChunkAt(snapshot.getChunkX(chunkIndex), snapshot.getChunkZ(chunkIndex));
+            ArenaSnapshot.ChunkDiff diff = diffChunk(chunkIndex, chunk.getChunkSnapshot(false, false, false));
+            for (int i = 0; i < diff.size(); i++) {
+                chunk.getBlock(diff.getX(i), diff.getY(i), diff.getZ(i)).setBlockData(diff.getData(i), false);
+            }
+            restoredBlocks += diff.size();
+            appliedChunks[chunkIndex] = true;
+        }
+        
+        finish();
+        if (scheduled && !isCancelled()) {
+            cancel();
+        }
+    }
+    
+    private void finish() {
+        finished = true;
+        plugin.getLogger().info("Restored " + restoredBlocks + " blocks in " + appliedChunks.length + " chunks from the arena snapshot");
+        if (onFinish != null) {
+            onFinish.run();
+        }
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+}
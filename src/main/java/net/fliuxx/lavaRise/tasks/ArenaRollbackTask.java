@@ -0,0 +1,91 @@
+package net.fliuxx.lavaRise.tasks;
+
+import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.utils.BlockJournal;
+import org.bukkit.World;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Task that restores the blocks recorded in a journal, newest first, within a per-tick budget
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaRollbackTask extends BukkitRunnable {
+    
+    private final LavaRise plugin;
+    private final World world;
+    private final BlockJournal journal;
+    private final Runnable onFinish;
+    private final int maxBlocks;
+    private final long maxNanos;
+    private int cursor;
+    private boolean finished;
+    private boolean scheduled;
+    
+    public ArenaRollbackTask(LavaRise plugin, World world, BlockJournal journal, Runnable onFinish) {
+        this.plugin = plugin;
+        this.world = world;
+        this.journal = journal;
+        this.onFinish = onFinish;
+        this.maxBlocks = plugin.getConfigManager().getLavaMaxBlocksPerTick();
+        this.maxNanos = plugin.getConfigManager().getLavaMaxMicrosPerTick() * 1000L;
+        this.cursor = journal.size() - 1;
+    }
+    
+    /**
+     * Runs the task every tick, or finishes it right away when the plugin is being disabled
+     */
+    public void start() {
+        if (plugin.isEnabled()) {
+            runTaskTimer(plugin, 1L, 1L);
+            scheduled = true;
+        } else {
+            finishNow();
+        }
+    }
+    
+    @Override
+    public void run() {
+        if (restore(maxBlocks, maxNanos)) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Restores everything that is left right away, e.g. when the plugin is disabled mid-rollback
+     */
+    public void finishNow() {
+        if (restore(Integer.MAX_VALUE, Long.MAX_VALUE) && scheduled && !isCancelled()) {
+            cancel();
+        }
+    }
+    
+    private boolean restore(int blockBudget, long nanoBudget) {
+        if (finished) return true;
+        
+        long startTime = System.nanoTime();
+        int restored = 0;
+        
+        while (cursor >= 0) {
+            if (restored >= blockBudget || ((restored & 63) == 0 && System.nanoTime() - startTime >= nanoBudget)) {
+                return false;
+            }
+            
+            long entry = journal.getEntry(cursor--);
+            world.getBlockAt(journal.getX(entry), journal.getY(entry), journal.getZ(entry))
+                .setBlockData(journal.getData(entry), false);
+            restored++;
+        }
+        
+        finished = true;
+        plugin.getLogger().info("Rolled back " + journal.size() + " blocks");
+        if (onFinish != null) {
+            onFinish.run();
+        }
+        return true;
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+}
@@ -1,50 +1,48 @@
 package net.fliuxx.lavaRise.tasks;
 
 import net.fliuxx.lavaRise.LavaRise;
-import org.bukkit.World;
+import net.fliuxx.lavaRise.managers.GameSession;
+import net.fliuxx.lavaRise.utils.TimerWheel;
 import org.bukkit.WorldBorder;
-import org.bukkit.scheduler.BukkitRunnable;
 
 /**
- * Task that handles world border shrinking
+ * Task that shrinks the border of one game session
  * 
  * @author Fl1uxxNoob
  */
-public class BorderTask extends BukkitRunnable {
+public class BorderTask extends TimerWheel.Task {
     
     private final LavaRise plugin;
-    private final World world;
+    private final GameSession session;
     private final int shrinkTime;
     private final int finalSize;
     private boolean started = false;
     
-    public BorderTask(LavaRise plugin, World world) {
+    public BorderTask(LavaRise plugin, GameSession session) {
         this.plugin = plugin;
-        this.world = world;
+        this.session = session;
         this.shrinkTime = plugin.getConfigManager().getBorderShrinkTime();
         this.finalSize = plugin.getConfigManager().getBorderFinalSize();
     }
     
     @Override
     public void run() {
-        if (!plugin.getGameManager().isGameActive()) {
-            cancel();
-            return;
-        }
-        
         if (!started) {
             // Start the border shrinking
-            WorldBorder border = world.getWorldBorder();
+            WorldBorder border = session.getBorder();
             border.setSize(finalSize, shrinkTime);
             started = true;
             
-            plugin.getLogger().info("Started world border shrinking to " + finalSize + " over " + shrinkTime + " seconds");
+            plugin.getLogger().info("Started border shrinking in arena " + session.getArena().getId() + " to " + finalSize + " over " + shrinkTime + " seconds");
         }
         
+        // Drop the columns the border has already passed so lava never fills them
+        WorldBorder border = session.getBorder();
+        session.getLavaManager().shrinkColumns((int) (border.getSize() / 2));
+        
         // Check if border has finished shrinking
-        WorldBorder border = world.getWorldBorder();
         if (border.getSize() <= finalSize + 1) { // Small tolerance for floating point precision
-            plugin.getLogger().info("World border has finished shrinking");
+            plugin.getLogger().info("Border of arena " + session.getArena().getId() + " has finished shrinking");
             cancel();
         }
     }
@@ -1,16 +1,16 @@
 package net.fliuxx.lavaRise.tasks;
 
 import net.fliuxx.lavaRise.LavaRise;
-import org.bukkit.scheduler.BukkitRunnable;
+import net.fliuxx.lavaRise.utils.TimerWheel;
 
 import java.util.function.Consumer;
 
 /**
- * Generic countdown task for LavaRise
+ * Generic countdown task for LavaRise, run once per second by a game's timer wheel
  * 
  * @author Fl1uxxNoob
  */
-public class CountdownTask extends BukkitRunnable {
+public class CountdownTask extends TimerWheel.Task {
     
     private final LavaRise plugin;
     private int timeLeft;
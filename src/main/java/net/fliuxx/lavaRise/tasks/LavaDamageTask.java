@@ -0,0 +1,77 @@
+package net.fliuxx.lavaRise.tasks;
+
+import net.fliuxx.lavaRise.LavaRise;
+import net.fliuxx.lavaRise.managers.GameSession;
+import net.fliuxx.lavaRise.utils.TimerWheel;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Task that burns and eliminates the alive players of a game below its lava level, checked once per tick.
+ * Vanilla lava and fire damage is cancelled for them, this task deals the configured damage instead.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaDamageTask extends TimerWheel.Task {
+    
+    private final GameSession session;
+    private final int damageInterval;
+    private final double damageAmount;
+    private final int fireTicks;
+    private final int lethalDepth;
+    
+    // Reused every tick so the sweep does not allocate
+    private final Location location = new Location(null, 0, 0, 0);
+    private final List<Player> burning = new ArrayList<>();
+    private final List<Player> eliminated = new ArrayList<>();
+    private int tick;
+    
+    public LavaDamageTask(LavaRise plugin, GameSession session) {
+        this.session = session;
+        this.damageInterval = plugin.getConfigManager().getLavaDamageInterval();
+        this.damageAmount = plugin.getConfigManager().getLavaDamageAmount();
+        this.fireTicks = plugin.getConfigManager().getLavaFireTicks();
+        this.lethalDepth = plugin.getConfigManager().getLavaLethalDepth();
+    }
+    
+    @Override
+    public void run() {
+        int lavaLevel = session.getLavaManager().getCurrentLevel();
+        boolean damageTick = ++tick % damageInterval == 0;
+        
+        // Sweep first, act afterwards: damage and elimination change the alive set
+        for (Player player : session.getAudience()) {
+            if (!session.isAlive(player.getUniqueId())) continue;
+            
+            int blockY = player.getLocation(location).getBlockY();
+            if (blockY >= lavaLevel) continue; // Lava fills every block below the level
+            
+            if (player.getFireTicks() < fireTicks) {
+                player.setFireTicks(fireTicks);
+            }
+            
+            if (lavaLevel - blockY >= lethalDepth) {
+                eliminated.add(player);
+            } else if (damageTick) {
+                if (player.getHealth() - damageAmount <= 0) {
+                    eliminated.add(player);
+                } else {
+                    burning.add(player);
+                }
+            }
+        }
+        
+        for (int i = 0; i < burning.size(); i++) {
+            burning.get(i).damage(damageAmount);
+        }
+        for (int i = 0; i < eliminated.size(); i++) {
+            session.eliminatePlayer(eliminated.get(i));
+        }
+        
+        burning.clear();
+        eliminated.clear();
+    }
+}
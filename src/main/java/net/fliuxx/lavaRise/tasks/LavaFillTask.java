@@ -0,0 +1,24 @@
+package net.fliuxx.lavaRise.tasks;
+
+import net.fliuxx.lavaRise.managers.GameSession;
+import net.fliuxx.lavaRise.utils.TimerWheel;
+
+/**
+ * Task that writes queued lava layers a slice per tick
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaFillTask extends TimerWheel.Task {
+    
+    private final GameSession session;
+    
+    public LavaFillTask(GameSession session) {
+        this.session = session;
+    }
+    
+    @Override
+    public void run() {
+        // Write as much of the pending layers as the tick budget allows
+        session.getLavaManager().tickFill();
+    }
+}
@@ -1,35 +1,35 @@
 package net.fliuxx.lavaRise.tasks;
 
 import net.fliuxx.lavaRise.LavaRise;
-import org.bukkit.scheduler.BukkitRunnable;
+import net.fliuxx.lavaRise.managers.GameSession;
+import net.fliuxx.lavaRise.utils.TimerWheel;
 
 /**
  * Task that handles the rising lava mechanics
  * 
  * @author Fl1uxxNoob
  */
-public class LavaRiseTask extends BukkitRunnable {
+public class LavaRiseTask extends TimerWheel.Task {
     
     private final LavaRise plugin;
+    private final GameSession session;
+    private final int maxHeight;
     
-    public LavaRiseTask(LavaRise plugin) {
+    public LavaRiseTask(LavaRise plugin, GameSession session) {
         this.plugin = plugin;
+        this.session = session;
+        this.maxHeight = plugin.getConfigManager().getMaxHeight();
     }
     
     @Override
     public void run() {
-        if (!plugin.getGameManager().isGameActive()) {
-            cancel();
-            return;
-        }
-        
         // Raise the lava
-        plugin.getLavaManager().raiseLava();
+        session.getLavaManager().raiseLava();
         
-        // Check if lava has reached max height
-        if (plugin.getLavaManager().getCurrentLevel() >= plugin.getConfigManager().getMaxHeight()) {
+        // Check if lava has been queued up to max height
+        if (session.getLavaManager().getTargetLevel() >= maxHeight) {
             // Lava has reached the top - game should end soon
-            plugin.getLogger().info("Lava has reached maximum height!");
+            plugin.getLogger().info("Lava has reached maximum height in arena " + session.getArena().getId() + "!");
             cancel();
         }
     }
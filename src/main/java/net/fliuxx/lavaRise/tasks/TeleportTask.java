@@ -0,0 +1,158 @@
+package net.fliuxx.lavaRise.tasks;
+
+import net.fliuxx.lavaRise.LavaRise;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Task that teleports a group of players a few at a time. For every player the destination chunk
+ * is loaded asynchronously first, then the player is moved with teleportAsync, so neither chunk
+ * loading nor teleporting lands on a single server tick. Reports once every player has arrived.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class TeleportTask extends BukkitRunnable {
+    
+    private final LavaRise plugin;
+    private final Deque<Player> queue;
+    private final Function<Player, Location> destination;
+    private final UnaryOperator<Location> settle;
+    private final Consumer<Player> prepare;
+    private final Consumer<Player> onArrive;
+    private final Runnable onComplete;
+    private final int batchSize;
+    private final int total;
+    private final long startTime;
+    private int done;
+    private boolean stopped;
+    private boolean scheduled;
+    
+    /**
+     * @param destination picks where a player goes; called before the chunk is loaded, so it must not read blocks
+     * @param settle turns the picked location into the final one once its chunk is loaded
+     * @param prepare resets the player right before the teleport
+     * @param onArrive runs for every player that was teleported
+     * @param onComplete runs once every player was teleported or went offline
+     */
+    public TeleportTask(LavaRise plugin, Collection<? extends Player> players, 
+                        Function<Player, Location> destination, UnaryOperator<Location> settle,
+                        Consumer<Player> prepare, Consumer<Player> onArrive, Runnable onComplete) {
+        this.plugin = plugin;
+        this.queue = new ArrayDeque<>(players);
+        this.destination = destination;
+        this.settle = settle;
+        this.prepare = prepare;
+        this.onArrive = onArrive;
+        this.onComplete = onComplete;
+        this.batchSize = plugin.getConfigManager().getTeleportBatchSize();
+        this.total = queue.size();
+        this.startTime = System.nanoTime();
+    }
+    
+    /**
+     * Starts the first batch on the next tick, or teleports everyone right away when the plugin is being disabled
+     */
+    public void start() {
+        if (total == 0) {
+            onComplete.run();
+        } else if (plugin.isEnabled()) {
+            runTaskTimer(plugin, 1L, 1L);
+            scheduled = true;
+        } else {
+            finishNow();
+        }
+    }
+    
+    @Override
+    public void run() {
+        for (int i = 0; i < batchSize && !queue.isEmpty(); i++) {
+            teleport(queue.poll());
+        }
+        
+        if (queue.isEmpty()) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Stops handing out teleports; players already on their way still arrive, but nobody is reported
+     */
+    public void stop() {
+        stopped = true;
+        queue.clear();
+        if (scheduled && !isCancelled()) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Teleports everyone left synchronously, for when no more tasks can be scheduled
+     */
+    private void finishNow() {
+        while (!queue.isEmpty()) {
+            Player player = queue.poll();
+            if (!player.isOnline()) {
+                arrived();
+                continue;
+            }
+            
+            Location target = settle.apply(destination.apply(player));
+            prepare.accept(player);
+            if (player.teleport(target)) {
+                onArrive.accept(player);
+            }
+            arrived();
+        }
+    }
+    
+    private void teleport(Player player) {
+        if (!player.isOnline()) {
+            arrived();
+            return;
+        }
+        
+        Location picked = destination.apply(player);
+        
+        // Paper completes these on the main thread, so the callbacks need no synchronization
+        picked.getWorld().getChunkAtAsync(picked.getBlockX() >> 4, picked.getBlockZ() >> 4, true).whenComplete((chunk, throwable) -> {
+            if (stopped) return;
+            
+            if (throwable != null) {
+                plugin.getLogger().warning("Could not load destination chunk for " + player.getName() + ": " + throwable.getMessage());
+            }
+            if (!player.isOnline()) {
+                arrived();
+                return;
+            }
+            
+            prepare.accept(player);
+            player.teleportAsync(settle.apply(picked)).whenComplete((success, error) -> {
+                if (stopped) return;
+                
+                if (Boolean.TRUE.equals(success)) {
+                    onArrive.accept(player);
+                } else {
+                    plugin.getLogger().warning("Could not teleport " + player.getName() + 
+                        (error != null ? ": " + error.getMessage() : ""));
+                }
+                arrived();
+            });
+        });
+    }
+    
+    private void arrived() {
+        if (++done < total) return;
+        
+        plugin.getLogger().info("Teleported " + total + " players in " + 
+            (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        onComplete.run();
+    }
+}
@@ -2,6 +2,7 @@ package net.fliuxx.lavaRise.utils;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 
 /**
@@ -12,15 +13,24 @@ import org.bukkit.configuration.ConfigurationSection;
 public class Arena {
     
     private final String id;
+    private final String worldName;
     private final Location center;
     private final int size;
     private boolean used;
+    private LavaMode lavaMode;
+    private SpawnPool spawnPool;
     
     public Arena(String id, Location center, int size) {
+        this(id, center.getWorld() != null ? center.getWorld().getName() : null, center, size);
+    }
+    
+    public Arena(String id, String worldName, Location center, int size) {
         this.id = id;
+        this.worldName = worldName;
         this.center = center;
         this.size = size;
         this.used = false;
+        this.lavaMode = LavaMode.BLOCKS;
     }
     
     public String getId() {
@@ -31,10 +41,32 @@ public class Arena {
         return center;
     }
     
+    /**
+     * Name of the world the arena was created in, loaded or not
+     */
+    public String getWorldName() {
+        return worldName;
+    }
+    
+    /**
+     * Points the arena at the world it is played in, e.g. a fresh copy of the template world
+     */
+    public void bindWorld(World world) {
+        center.setWorld(world);
+    }
+    
     public int getSize() {
         return size;
     }
     
+    /**
+     * Whether the position lies inside the arena's initial border
+     */
+    public boolean isWithinBounds(int x, int z) {
+        int radius = size / 2;
+        return Math.abs(x - center.getBlockX()) <= radius && Math.abs(z - center.getBlockZ()) <= radius;
+    }
+    
     public boolean isUsed() {
         return used;
     }
@@ -43,14 +75,23 @@ public class Arena {
         this.used = used;
     }
     
-    public void saveToConfig(ConfigurationSection config, String path) {
-        config.set(path + ".id", id);
-        config.set(path + ".world", center.getWorld().getName());
-        config.set(path + ".x", center.getX());
-        config.set(path + ".y", center.getY());
-        config.set(path + ".z", center.getZ());
-        config.set(path + ".size", size);
-        config.set(path + ".used", used);
+    public LavaMode getLavaMode() {
+        return lavaMode;
+    }
+    
+    public void setLavaMode(LavaMode lavaMode) {
+        this.lavaMode = lavaMode;
+    }
+    
+    /**
+     * The spawn points sampled for this arena, or null before its first game
+     */
+    public SpawnPool getSpawnPool() {
+        return spawnPool;
+    }
+    
+    public void setSpawnPool(SpawnPool spawnPool) {
+        this.spawnPool = spawnPool;
     }
     
     public static Arena fromConfig(ConfigurationSection config) {
@@ -66,8 +107,10 @@ public class Arena {
             boolean used = config.getBoolean("used", false);
             
             Location center = new Location(Bukkit.getWorld(worldName), x, y, z);
-            Arena arena = new Arena(id, center, size);
+            Arena arena = new Arena(id, worldName, center, size);
             arena.setUsed(used);
+            String lavaMode = config.getString("lava_mode", LavaMode.BLOCKS.name());
+            arena.setLavaMode(LavaMode.LOGICAL.name().equalsIgnoreCase(lavaMode) ? LavaMode.LOGICAL : LavaMode.BLOCKS);
             
             return arena;
         } catch (Exception e) {
@@ -77,6 +120,6 @@ public class Arena {
     
     @Override
     public String toString() {
-        return "Arena{id='" + id + "', center=" + center + ", size=" + size + ", used=" + used + "}";
+        return "Arena{id='" + id + "', center=" + center + ", size=" + size + ", used=" + used + ", lavaMode=" + lavaMode + "}";
     }
 }
\ No newline at end of file
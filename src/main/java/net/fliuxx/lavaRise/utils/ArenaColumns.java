@@ -0,0 +1,163 @@
+package net.fliuxx.lavaRise.utils;
+
+import java.util.Arrays;
+
+/**
+ * Set of live arena columns stored as one X span per Z row, relative to the arena center.
+ * Built once per arena and shrunk in place as the border closes in.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaColumns {
+    
+    private final int centerX;
+    private final int centerZ;
+    private final int maxRadius;
+    
+    // Span of live dx values for row dz, indexed by dz + maxRadius. Empty when min > max.
+    private final int[] rowMin;
+    private final int[] rowMax;
+    
+    private int radius;
+    private long liveColumns;
+    
+    public ArenaColumns(int centerX, int centerZ, int radius) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.maxRadius = Math.max(0, radius);
+        this.rowMin = new int[maxRadius * 2 + 1];
+        this.rowMax = new int[maxRadius * 2 + 1];
+        this.radius = maxRadius;
+        
+        // Start from the full bounding square and cut it down to the circle
+        Arrays.fill(rowMin, -maxRadius);
+        Arrays.fill(rowMax, maxRadius);
+        applyRadius(maxRadius);
+    }
+    
+    /**
+     * Removes every column farther than newRadius from the center. Growing is not supported.
+     */
+    public void shrink(int newRadius) {
+        newRadius = Math.max(0, newRadius);
+        if (newRadius >= radius) return;
+        
+        radius = newRadius;
+        applyRadius(newRadius);
+    }
+    
+    private void applyRadius(int newRadius) {
+        long radiusSquared = (long) newRadius * newRadius;
+        long live = 0;
+        
+        for (int dz = -maxRadius; dz <= maxRadius; dz++) {
+            int row = dz + maxRadius;
+            long dzSquared = (long) dz * dz;
+            
+            if (dzSquared > radiusSquared) {
+                rowMin[row] = 1;
+                rowMax[row] = 0;
+                continue;
+            }
+            
+            int halfWidth = isqrt(radiusSquared - dzSquared);
+            
+            // Intersect with the current span so that the set only ever shrinks
+            rowMin[row] = Math.max(rowMin[row], -halfWidth);
+            rowMax[row] = Math.min(rowMax[row], halfWidth);
+            
+            if (rowMin[row] <= rowMax[row]) {
+                live += rowMax[row] - rowMin[row] + 1;
+            }
+        }
+        
+        liveColumns = live;
+    }
+    
+    private static int isqrt(long value) {
+        int root = (int) Math.sqrt(value);
+        while ((long) root * root > value) root--;
+        while ((long) (root + 1) * (root + 1) <= value) root++;
+        return root;
+    }
+    
+    public boolean contains(int x, int z) {
+        int dz = z - centerZ;
+        if (dz < -radius || dz > radius) return false;
+        
+        int row = dz + maxRadius;
+        int dx = x - centerX;
+        return dx >= rowMin[row] && dx <= rowMax[row];
+    }
+    
+    /**
+     * Writes the local column indexes (z << 4 | x) of the live columns inside a chunk.
+     * 
+     * @return the number of indexes written to out, which must hold at least 256 entries
+     */
+    public int collectChunkColumns(int chunkX, int chunkZ, int[] out) {
+        int count = 0;
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+        
+        for (int localZ = 0; localZ < 16; localZ++) {
+            int dz = baseZ + localZ - centerZ;
+            if (dz < -radius || dz > radius) continue;
+            
+            int row = dz + maxRadius;
+            int fromX = Math.max(rowMin[row] + centerX - baseX, 0);
+            int toX = Math.min(rowMax[row] + centerX - baseX, 15);
+            
+            for (int localX = fromX; localX <= toX; localX++) {
+                out[count++] = (localZ << 4) | localX;
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Whether the position lies inside the arena's original bounding square, live or not
+     */
+    public boolean isWithinBounds(int x, int z) {
+        int dx = x - centerX;
+        int dz = z - centerZ;
+        return dx >= -maxRadius && dx <= maxRadius && dz >= -maxRadius && dz <= maxRadius;
+    }
+    
+    public int getMinChunkX() {
+        return (centerX - radius) >> 4;
+    }
+    
+    public int getMaxChunkX() {
+        return (centerX + radius) >> 4;
+    }
+    
+    public int getMinChunkZ() {
+        return (centerZ - radius) >> 4;
+    }
+    
+    public int getMaxChunkZ() {
+        return (centerZ + radius) >> 4;
+    }
+    
+    public int getCenterX() {
+        return centerX;
+    }
+    
+    public int getCenterZ() {
+        return centerZ;
+    }
+    
+    public int getRadius() {
+        return radius;
+    }
+    
+    public long getLiveColumns() {
+        return liveColumns;
+    }
+    
+    public boolean isEmpty() {
+        return liveColumns == 0;
+    }
+}
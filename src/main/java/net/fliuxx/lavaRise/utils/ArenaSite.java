@@ -0,0 +1,71 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.block.Biome;
+
+/**
+ * A scored candidate location for a new arena
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaSite {
+    
+    private final int x;
+    private final int z;
+    private final int surfaceY;
+    private final double score;
+    private final double waterRatio;
+    private final double heightDeviation;
+    private final Biome biome;
+    
+    public ArenaSite(int x, int z, int surfaceY, double score, double waterRatio, double heightDeviation, Biome biome) {
+        this.x = x;
+        this.z = z;
+        this.surfaceY = surfaceY;
+        this.score = score;
+        this.waterRatio = waterRatio;
+        this.heightDeviation = heightDeviation;
+        this.biome = biome;
+    }
+    
+    public int getX() {
+        return x;
+    }
+    
+    public int getZ() {
+        return z;
+    }
+    
+    public int getSurfaceY() {
+        return surfaceY;
+    }
+    
+    public double getScore() {
+        return score;
+    }
+    
+    public double getWaterRatio() {
+        return waterRatio;
+    }
+    
+    public double getHeightDeviation() {
+        return heightDeviation;
+    }
+    
+    public Biome getBiome() {
+        return biome;
+    }
+    
+    /**
+     * Whether the areas of arenas of the given size centered on both sites overlap
+     */
+    public boolean overlaps(int otherX, int otherZ, int size) {
+        return Math.abs(x - otherX) < size && Math.abs(z - otherZ) < size;
+    }
+    
+    @Override
+    public String toString() {
+        return "ArenaSite{x=" + x + ", z=" + z + ", y=" + surfaceY + ", score=" + String.format("%.1f", score) + 
+            ", water=" + String.format("%.2f", waterRatio) + ", deviation=" + String.format("%.1f", heightDeviation) + 
+            ", biome=" + biome + "}";
+    }
+}
@@ -0,0 +1,330 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.block.data.BlockData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary snapshot of an arena's terrain, stored as one deflated palette section per 16x16x16 block.
+ * The file is memory-mapped and decoded section by section when the arena is restored.
+ * 
+ * File layout: magic, version, minY, maxY, section count, then an index of
+ * (chunkX, chunkZ, sectionY, offset, length) entries followed by the compressed sections.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaSnapshot {
+    
+    private static final int MAGIC = 0x4C52534E; // "LRSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int INDEX_ENTRY_SIZE = 24;
+    private static final int SECTION_VOLUME = 4096;
+    
+    private final MappedByteBuffer buffer;
+    private final int minY;
+    private final int maxY;
+    private final int[] chunkXs;
+    private final int[] chunkZs;
+    private final int[][] chunkSections; // Index entries belonging to each chunk
+    private final Map<String, BlockData> blockDataCache;
+    
+    private ArenaSnapshot(MappedByteBuffer buffer, int minY, int maxY, int[] chunkXs, int[] chunkZs, int[][] chunkSections) {
+        this.buffer = buffer;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.chunkXs = chunkXs;
+        this.chunkZs = chunkZs;
+        this.chunkSections = chunkSections;
+        this.blockDataCache = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Encodes the chunk snapshots into a snapshot file. Safe to run off the main thread.
+     * 
+     * @return the size of the written file in bytes
+     */
+    public static long write(File file, List<ChunkSnapshot> chunks, int minY, int maxY) throws IOException {
+        int minSection = minY >> 4;
+        int maxSection = (maxY - 1) >> 4;
+        
+        List<int[]> index = new ArrayList<>();
+        List<byte[]> sections = new ArrayList<>();
+        for (ChunkSnapshot chunk : chunks) {
+            for (int sectionY = minSection; sectionY <= maxSection; sectionY++) {
+                index.add(new int[]{chunk.getX(), chunk.getZ(), sectionY});
+                sections.add(encodeSection(chunk, sectionY));
+            }
+        }
+        
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), 
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + index.size() * INDEX_ENTRY_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(minY).putInt(maxY).putInt(index.size());
+            
+            long offset = header.capacity();
+            for (int i = 0; i < index.size(); i++) {
+                int[] entry = index.get(i);
+                header.putInt(entry[0]).putInt(entry[1]).putInt(entry[2]);
+                header.putLong(offset).putInt(sections.get(i).length);
+                offset += sections.get(i).length;
+            }
+            
+            header.flip();
+            writeFully(channel, header);
+            for (byte[] section : sections) {
+                writeFully(channel, ByteBuffer.wrap(section));
+            }
+        }
+        
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file.length();
+    }
+    
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+    
+    private static byte[] encodeSection(ChunkSnapshot chunk, int sectionY) throws IOException {
+        Map<BlockData, Integer> paletteIndexes = new HashMap<>();
+        List<BlockData> palette = new ArrayList<>();
+        int[] indexes = new int[SECTION_VOLUME];
+        int baseY = sectionY << 4;
+        
+        for (int i = 0; i < SECTION_VOLUME; i++) {
+            BlockData data = chunk.getBlockData(i & 15, baseY + (i >> 8), (i >> 4) & 15);
+            Integer paletteIndex = paletteIndexes.get(data);
+            if (paletteIndex == null) {
+                paletteIndex = palette.size();
+                palette.add(data);
+                paletteIndexes.put(data, paletteIndex);
+            }
+            indexes[i] = paletteIndex;
+        }
+        
+        int bits = bitsFor(palette.size());
+        long[] packed = pack(indexes, bits);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(palette.size());
+            for (BlockData data : palette) {
+                out.writeUTF(data.getAsString());
+            }
+            out.writeByte(bits);
+            out.writeInt(packed.length);
+            for (long value : packed) {
+                out.writeLong(value);
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static int bitsFor(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+    }
+    
+    // Entries never span two longs, like the vanilla chunk format
+    private static long[] pack(int[] values, int bits) {
+        int perLong = 64 / bits;
+        long[] packed = new long[(values.length + perLong - 1) / perLong];
+        for (int i = 0; i < values.length; i++) {
+            packed[i / perLong] |= (long) values[i] << ((i % perLong) * bits);
+        }
+        return packed;
+    }
+    
+    private static int unpack(long[] packed, int bits, int index) {
+        int perLong = 64 / bits;
+        return (int) ((packed[index / perLong] >>> ((index % perLong) * bits)) & ((1L << bits) - 1));
+    }
+    
+    /**
+     * Memory-maps a snapshot file and reads its index
+     */
+    public static ArenaSnapshot open(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a LavaRise arena snapshot: " + file.getName());
+        }
+        int minY = buffer.getInt(8);
+        int maxY = buffer.getInt(12);
+        int sectionCount = buffer.getInt(16);
+        
+        // Group the index entries by chunk, keeping the file order
+        Map<Long, List<Integer>> byChunk = new LinkedHashMap<>();
+        for (int i = 0; i < sectionCount; i++) {
+            int entry = HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+            long key = ((long) buffer.getInt(entry + 4) << 32) | (buffer.getInt(entry) & 0xFFFFFFFFL);
+            byChunk.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        }
+        
+        int[] chunkXs = new int[byChunk.size()];
+        int[] chunkZs = new int[byChunk.size()];
+        int[][] chunkSections = new int[byChunk.size()][];
+        int chunk = 0;
+        for (Map.Entry<Long, List<Integer>> entry : byChunk.entrySet()) {
+            chunkXs[chunk] = (int) (long) entry.getKey();
+            chunkZs[chunk] = (int) (entry.getKey() >> 32);
+            chunkSections[chunk] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            chunk++;
+        }
+        
+        return new ArenaSnapshot(buffer, minY, maxY, chunkXs, chunkZs, chunkSections);
+    }
+    
+    /**
+     * Decodes the stored sections of a chunk and lists every block that differs from the live chunk.
+     * Safe to run off the main thread.
+     */
+    public ChunkDiff diffChunk(int chunkIndex, ChunkSnapshot live) throws IOException {
+        ChunkDiff diff = new ChunkDiff(chunkIndex);
+        
+        for (int entry : chunkSections[chunkIndex]) {
+            int baseY = buffer.getInt(entry + 8) << 4;
+            long offset = buffer.getLong(entry + 12);
+            int length = buffer.getInt(entry + 20);
+            
+            byte[] compressed = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) offset);
+            slice.get(compressed);
+            
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+                BlockData[] palette = new BlockData[in.readInt()];
+                for (int i = 0; i < palette.length; i++) {
+                    palette[i] = blockDataCache.computeIfAbsent(in.readUTF(), Bukkit::createBlockData);
+                }
+                int bits = in.readByte();
+                long[] packed = new long[in.readInt()];
+                for (int i = 0; i < packed.length; i++) {
+                    packed[i] = in.readLong();
+                }
+                
+                for (int i = 0; i < SECTION_VOLUME; i++) {
+                    BlockData stored = palette[unpack(packed, bits, i)];
+                    int x = i & 15;
+                    int y = baseY + (i >> 8);
+                    int z = (i >> 4) & 15;
+                    
+                    // Cheap type check first, full state comparison only when the type matches
+                    if (live.getBlockType(x, y, z) == stored.getMaterial() && live.getBlockData(x, y, z).equals(stored)) {
+                        continue;
+                    }
+                    diff.add(x, y, z, stored);
+                }
+            }
+        }
+        
+        return diff;
+    }
+    
+    public int getChunkCount() {
+        return chunkXs.length;
+    }
+    
+    public int getChunkX(int chunkIndex) {
+        return chunkXs[chunkIndex];
+    }
+    
+    public int getChunkZ(int chunkIndex) {
+        return chunkZs[chunkIndex];
+    }
+    
+    public int getMinY() {
+        return minY;
+    }
+    
+    public int getMaxY() {
+        return maxY;
+    }
+    
+    /**
+     * Blocks of one chunk that have to be written back to match the snapshot
+     */
+    public static class ChunkDiff {
+        
+        private final int chunkIndex;
+        private int[] xs = new int[64];
+        private int[] ys = new int[64];
+        private int[] zs = new int[64];
+        private BlockData[] data = new BlockData[64];
+        private int size;
+        
+        public ChunkDiff(int chunkIndex) {
+            this.chunkIndex = chunkIndex;
+        }
+        
+        private void add(int x, int y, int z, BlockData blockData) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+                zs = Arrays.copyOf(zs, size * 2);
+                data = Arrays.copyOf(data, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            data[size] = blockData;
+            size++;
+        }
+        
+        public int getChunkIndex() {
+            return chunkIndex;
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public int getX(int index) {
+            return xs[index];
+        }
+        
+        public int getY(int index) {
+            return ys[index];
+        }
+        
+        public int getZ(int index) {
+            return zs[index];
+        }
+        
+        public BlockData getData(int index) {
+            return data[index];
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of arena state changes, written by a background thread.
+ * The arena lists are rebuilt on startup by replaying the log, which is compacted
+ * back to one CREATE record per arena once enough changes have piled up.
+ * 
+ * Records are tab-separated lines:
+ * CREATE id world x y z size mode, USED id, RESTORED id, ROTATED id, MODE id mode
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ArenaStore {
+    
+    private static final String CREATE = "CREATE";
+    private static final String USED = "USED";
+    private static final String RESTORED = "RESTORED";
+    private static final String ROTATED = "ROTATED";
+    private static final String MODE = "MODE";
+    
+    // Compact once the log holds this many records more than the arenas need
+    private static final int MIN_COMPACTION_RECORDS = 64;
+    
+    private final File logFile;
+    private final Logger logger;
+    private final ExecutorService writer;
+    private int recordsSinceCompaction;
+    
+    // Only touched by the writer thread
+    private BufferedWriter out;
+    
+    public ArenaStore(File logFile, Logger logger) {
+        this.logFile = logFile;
+        this.logger = logger;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LavaRise-ArenaStore");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public boolean exists() {
+        return logFile.exists();
+    }
+    
+    /**
+     * Rebuilds the arena lists from the log, in the order the arenas were made available
+     */
+    public void replay(List<Arena> available, List<Arena> used) throws IOException {
+        Map<String, Arena> arenas = new HashMap<>();
+        int lineNumber = 0;
+        
+        try (BufferedReader in = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) continue;
+                
+                String[] parts = line.split("\t", -1);
+                Arena arena = parts.length > 1 ? arenas.get(parts[1]) : null;
+                
+                try {
+                    switch (parts[0]) {
+                        case CREATE:
+                            Arena created = parseArena(parts);
+                            arenas.put(created.getId(), created);
+                            available.add(created);
+                            break;
+                        case USED:
+                            if (arena == null) break;
+                            available.remove(arena);
+                            used.remove(arena);
+                            used.add(arena);
+                            arena.setUsed(true);
+                            break;
+                        case RESTORED:
+                            if (arena == null) break;
+                            used.remove(arena);
+                            available.remove(arena);
+                            available.add(arena);
+                            arena.setUsed(false);
+                            break;
+                        case ROTATED:
+                            if (arena == null || !available.remove(arena)) break;
+                            available.add(arena);
+                            break;
+                        case MODE:
+                            if (arena == null) break;
+                            arena.setLavaMode(LavaMode.valueOf(parts[2]));
+                            break;
+                        default:
+                            logger.warning("Unknown record in " + logFile.getName() + " at line " + lineNumber);
+                    }
+                } catch (RuntimeException e) {
+                    // A torn last line after a crash must not cost every other arena
+                    logger.warning("Skipping bad record in " + logFile.getName() + " at line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        
+        recordsSinceCompaction = Math.max(0, lineNumber - arenas.size());
+    }
+    
+    private static Arena parseArena(String[] parts) {
+        String worldName = parts[2];
+        Location center = new Location(Bukkit.getWorld(worldName), 
+            Double.parseDouble(parts[3]), Double.parseDouble(parts[4]), Double.parseDouble(parts[5]));
+        Arena arena = new Arena(parts[1], worldName, center, Integer.parseInt(parts[6]));
+        arena.setLavaMode(LavaMode.valueOf(parts[7]));
+        return arena;
+    }
+    
+    private static String createRecord(Arena arena) {
+        Location center = arena.getCenter();
+        return String.join("\t", CREATE, arena.getId(), arena.getWorldName(), 
+            String.valueOf(center.getX()), String.valueOf(center.getY()), String.valueOf(center.getZ()),
+            String.valueOf(arena.getSize()), arena.getLavaMode().name());
+    }
+    
+    public void created(Arena arena) {
+        append(createRecord(arena));
+    }
+    
+    public void used(Arena arena) {
+        append(USED + "\t" + arena.getId());
+    }
+    
+    public void restored(Arena arena) {
+        append(RESTORED + "\t" + arena.getId());
+    }
+    
+    public void rotated(Arena arena) {
+        append(ROTATED + "\t" + arena.getId());
+    }
+    
+    public void lavaModeChanged(Arena arena) {
+        append(MODE + "\t" + arena.getId() + "\t" + arena.getLavaMode().name());
+    }
+    
+    private void append(String record) {
+        recordsSinceCompaction++;
+        writer.execute(() -> {
+            try {
+                if (out == null) {
+                    out = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8, 
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                out.write(record);
+                out.newLine();
+                out.flush();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not write to " + logFile.getName(), e);
+            }
+        });
+    }
+    
+    public boolean needsCompaction(int arenaCount) {
+        return recordsSinceCompaction > Math.max(MIN_COMPACTION_RECORDS, arenaCount);
+    }
+    
+    /**
+     * Replaces the log with the current state. The records are built on the calling thread,
+     * the file is rewritten in the background.
+     * 
+     * @return completed on the writer thread once the log is rewritten, or exceptionally when that failed
+     */
+    public CompletableFuture<Void> compact(List<Arena> available, List<Arena> used) {
+        List<String> records = new ArrayList<>(available.size() + used.size() * 2);
+        for (Arena arena : used) {
+            records.add(createRecord(arena));
+            records.add(USED + "\t" + arena.getId());
+        }
+        // Available arenas last so their order is kept on replay
+        for (Arena arena : available) {
+            records.add(createRecord(arena));
+        }
+        recordsSinceCompaction = 0;
+        
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        writer.execute(() -> {
+            File tempFile = new File(logFile.getPath() + ".tmp");
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+                Files.write(tempFile.toPath(), records, StandardCharsets.UTF_8);
+                Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                written.complete(null);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not compact " + logFile.getName(), e);
+                written.completeExceptionally(e);
+            }
+        });
+        return written;
+    }
+    
+    /**
+     * Writes every pending record and stops the writer thread
+     */
+    public void close() {
+        writer.execute(() -> {
+            try {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close " + logFile.getName(), e);
+            }
+        });
+        writer.shutdown();
+        
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warning("Timed out writing " + logFile.getName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
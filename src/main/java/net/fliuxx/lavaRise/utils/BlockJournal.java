@@ -0,0 +1,113 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact journal of the original blocks replaced during a game, one long per block.
+ * Each entry packs the palette index with the position relative to the arena center.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class BlockJournal {
+    
+    // Entry layout: palette (26 bits) | dx (13 bits) | dz (13 bits) | y + 2048 (12 bits)
+    private static final int COORD_BITS = 13;
+    private static final int Y_BITS = 12;
+    private static final int MAX_OFFSET = (1 << (COORD_BITS - 1)) - 1;
+    private static final int Y_OFFSET = 1 << (Y_BITS - 1);
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final int PALETTE_SHIFT = COORD_BITS * 2 + Y_BITS;
+    
+    private final int originX;
+    private final int originZ;
+    private final List<BlockData> palette;
+    private final Map<BlockData, Integer> paletteIndexes;
+    private long[] entries;
+    private int size;
+    
+    public BlockJournal(int originX, int originZ) {
+        this.originX = originX;
+        this.originZ = originZ;
+        this.palette = new ArrayList<>();
+        this.paletteIndexes = new HashMap<>();
+        this.entries = new long[4096];
+        this.size = 0;
+    }
+    
+    /**
+     * Returns the palette index of a block state, adding it on first use
+     */
+    public int paletteIndex(BlockData data) {
+        Integer index = paletteIndexes.get(data);
+        if (index == null) {
+            index = palette.size();
+            palette.add(data);
+            paletteIndexes.put(data, index);
+        }
+        return index;
+    }
+    
+    public void record(int x, int y, int z, BlockData original) {
+        record(x, y, z, paletteIndex(original));
+    }
+    
+    public void record(int x, int y, int z, int paletteIndex) {
+        int dx = x - originX;
+        int dz = z - originZ;
+        if (Math.abs(dx) > MAX_OFFSET || Math.abs(dz) > MAX_OFFSET) {
+            throw new IllegalArgumentException("Block " + x + ", " + z + " is too far from the journal origin");
+        }
+        
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        
+        entries[size++] = ((long) paletteIndex << PALETTE_SHIFT) |
+            ((dx & COORD_MASK) << (COORD_BITS + Y_BITS)) |
+            ((dz & COORD_MASK) << Y_BITS) |
+            ((y + Y_OFFSET) & Y_MASK);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public long getEntry(int index) {
+        return entries[index];
+    }
+    
+    public int getX(long entry) {
+        return originX + signExtend((entry >>> (COORD_BITS + Y_BITS)) & COORD_MASK);
+    }
+    
+    public int getZ(long entry) {
+        return originZ + signExtend((entry >>> Y_BITS) & COORD_MASK);
+    }
+    
+    public int getY(long entry) {
+        return (int) (entry & Y_MASK) - Y_OFFSET;
+    }
+    
+    public BlockData getData(long entry) {
+        return palette.get((int) (entry >>> PALETTE_SHIFT));
+    }
+    
+    public int getPaletteSize() {
+        return palette.size();
+    }
+    
+    private static int signExtend(long value) {
+        return (int) (value << (64 - COORD_BITS) >> (64 - COORD_BITS));
+    }
+}
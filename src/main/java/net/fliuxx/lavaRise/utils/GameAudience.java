@@ -0,0 +1,79 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The online participants of one game, alive players and spectators alike, kept as player handles
+ * so sending to them needs no lookup. Messages queued during a tick are sent together on flush,
+ * one chat message per player however many lines were queued.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class GameAudience {
+    
+    private final Map<UUID, Player> players;
+    private final Collection<Player> playersView;
+    private final StringBuilder pending;
+    
+    public GameAudience() {
+        this.players = new LinkedHashMap<>();
+        this.playersView = Collections.unmodifiableCollection(players.values());
+        this.pending = new StringBuilder();
+    }
+    
+    /**
+     * Adds a participant, or replaces the stale handle of one who rejoined
+     */
+    public void add(Player player) {
+        players.put(player.getUniqueId(), player);
+    }
+    
+    public void remove(UUID uuid) {
+        players.remove(uuid);
+    }
+    
+    /**
+     * Queues a rendered message for everyone in the audience
+     */
+    public void send(String message) {
+        if (pending.length() > 0) {
+            pending.append('\n');
+        }
+        pending.append(message);
+    }
+    
+    /**
+     * Sends the queued messages
+     */
+    public void flush() {
+        if (pending.length() == 0) return;
+        
+        String message = pending.toString();
+        pending.setLength(0);
+        for (Player player : players.values()) {
+            player.sendMessage(message);
+        }
+    }
+    
+    public void clear() {
+        players.clear();
+        pending.setLength(0);
+    }
+    
+    /**
+     * Read-only live view of the online participants
+     */
+    public Collection<Player> getPlayers() {
+        return playersView;
+    }
+    
+    public int size() {
+        return players.size();
+    }
+}
@@ -0,0 +1,130 @@
+package net.fliuxx.lavaRise.utils;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.boss.BossBar;
+import org.bukkit.entity.Player;
+
+/**
+ * Boss bar and action bar of one game. Callers set the desired state as often as they like;
+ * only properties that really changed are sent to the players.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class GameHud {
+    
+    // The client fades the action bar out after about three seconds
+    private static final int ACTION_BAR_REFRESH_TICKS = 40;
+    
+    private final BossBar bossBar;
+    private String title;
+    private double progress;
+    private boolean visible;
+    
+    private String actionBarText;
+    private Component actionBar;
+    private boolean actionBarChanged;
+    private int ticksSinceActionBar;
+    
+    /**
+     * @param bossBar the game's boss bar, or null when boss bars are disabled
+     */
+    public GameHud(BossBar bossBar) {
+        this.bossBar = bossBar;
+        this.title = null;
+        this.progress = -1;
+        this.visible = bossBar != null && bossBar.isVisible();
+        this.actionBarText = null;
+    }
+    
+    public void showBossBar(String newTitle, double newProgress) {
+        if (bossBar == null) return;
+        
+        if (!newTitle.equals(title)) {
+            title = newTitle;
+            bossBar.setTitle(newTitle);
+        }
+        
+        newProgress = Math.max(0.0, Math.min(1.0, newProgress));
+        if (newProgress != progress) {
+            progress = newProgress;
+            bossBar.setProgress(newProgress);
+        }
+        
+        if (!visible) {
+            visible = true;
+            bossBar.setVisible(true);
+        }
+    }
+    
+    public void hideBossBar() {
+        if (bossBar == null || !visible) return;
+        
+        visible = false;
+        bossBar.setVisible(false);
+    }
+    
+    /**
+     * Sets the action bar text, or clears it with null
+     */
+    public void setActionBar(String text) {
+        if (text == null ? actionBarText == null : text.equals(actionBarText)) return;
+        
+        actionBarText = text;
+        actionBar = text != null ? LegacyComponentSerializer.legacySection().deserialize(text) : Component.empty();
+        actionBarChanged = true;
+    }
+    
+    /**
+     * Advances the action bar by one tick
+     * 
+     * @return true when the action bar changed or must be sent again before the client fades it out;
+     *         the caller then passes every player to {@link #sendActionBar(Player)}
+     */
+    public boolean tickActionBar() {
+        ticksSinceActionBar++;
+        if (!actionBarChanged && (actionBarText == null || ticksSinceActionBar < ACTION_BAR_REFRESH_TICKS)) return false;
+        
+        actionBarChanged = false;
+        ticksSinceActionBar = 0;
+        return true;
+    }
+    
+    public void sendActionBar(Player player) {
+        player.sendActionBar(actionBar);
+    }
+    
+    public void addPlayer(Player player) {
+        if (bossBar != null) {
+            bossBar.addPlayer(player);
+        }
+        if (actionBarText != null) {
+            player.sendActionBar(actionBar);
+        }
+    }
+    
+    public void removePlayer(Player player) {
+        if (bossBar != null) {
+            bossBar.removePlayer(player);
+        }
+        if (actionBarText != null) {
+            player.sendActionBar(Component.empty());
+        }
+    }
+    
+    /**
+     * Hides everything and removes every player, at the end of the game
+     */
+    public void clear() {
+        if (bossBar != null) {
+            bossBar.removeAll();
+            bossBar.setTitle("");
+            bossBar.setVisible(false);
+        }
+        title = null;
+        progress = -1;
+        visible = false;
+        actionBarText = null;
+        actionBarChanged = false;
+    }
+}
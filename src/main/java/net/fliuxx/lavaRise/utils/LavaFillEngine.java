@@ -0,0 +1,125 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Levelled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plans lava fills chunk by chunk instead of block by block
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaFillEngine {
+    
+    // Blocks that lava must never replace
+    private static final Set<Material> PROTECTED_MATERIALS = EnumSet.of(
+        Material.BEDROCK,
+        Material.BARRIER,
+        Material.COMMAND_BLOCK,
+        Material.STRUCTURE_BLOCK
+    );
+    
+    // Still lava source written in STATIC placement mode
+    private final BlockData staticLava;
+    
+    // Reused per chunk: local column indexes (z << 4 | x) of the live columns
+    private final int[] columnIndexes = new int[256];
+    
+    public LavaFillEngine() {
+        Levelled lava = (Levelled) Material.LAVA.createBlockData();
+        lava.setLevel(0);
+        this.staticLava = lava;
+    }
+    
+    public static boolean isProtected(Material material) {
+        return PROTECTED_MATERIALS.contains(material);
+    }
+    
+    /**
+     * Plans a fill of every layer from fromY (inclusive) to toY (exclusive) over the live arena columns.
+     * The returned job visits each chunk once and writes all of its layers before moving on.
+     * Chunks covered by the optional plan are written without reading their blocks, and every
+     * replaced block is recorded in the optional journal.
+     */
+    public LavaFillJob createJob(World world, ArenaColumns columns, int fromY, int toY, LavaPlacement placement, 
+                                 LavaFillPlan plan, BlockJournal journal) {
+        int minY = Math.max(fromY, world.getMinHeight());
+        int maxY = Math.min(toY, world.getMaxHeight());
+        
+        List<int[]> chunkColumns = new ArrayList<>();
+        List<int[]> chunkCoords = new ArrayList<>();
+        
+        if (minY < maxY && !columns.isEmpty()) {
+            for (int chunkX = columns.getMinChunkX(); chunkX <= columns.getMaxChunkX(); chunkX++) {
+                for (int chunkZ = columns.getMinChunkZ(); chunkZ <= columns.getMaxChunkZ(); chunkZ++) {
+                    int count = columns.collectChunkColumns(chunkX, chunkZ, columnIndexes);
+                    if (count == 0) continue;
+                    
+                    chunkColumns.add(Arrays.copyOf(columnIndexes, count));
+                    chunkCoords.add(new int[]{chunkX, chunkZ});
+                }
+            }
+        }
+        
+        int[] chunkXs = new int[chunkCoords.size()];
+        int[] chunkZs = new int[chunkCoords.size()];
+        for (int i = 0; i < chunkCoords.size(); i++) {
+            chunkXs[i] = chunkCoords.get(i)[0];
+            chunkZs[i] = chunkCoords.get(i)[1];
+        }
+        
+        return new LavaFillJob(world, columns, chunkXs, chunkZs, chunkColumns.toArray(new int[0][]), minY, maxY, 
+            placement, staticLava, plan, journal);
+    }
+    
+    /**
+     * Statistics of a single fill operation
+     */
+    public static class FillResult {
+        
+        private final int blocksWritten;
+        private final int blocksSkipped;
+        private final int chunksVisited;
+        private final long elapsedNanos;
+        
+        public FillResult(int blocksWritten, int blocksSkipped, int chunksVisited, long elapsedNanos) {
+            this.blocksWritten = blocksWritten;
+            this.blocksSkipped = blocksSkipped;
+            this.chunksVisited = chunksVisited;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public int getBlocksWritten() {
+            return blocksWritten;
+        }
+        
+        public int getBlocksSkipped() {
+            return blocksSkipped;
+        }
+        
+        public int getChunksVisited() {
+            return chunksVisited;
+        }
+        
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+        
+        @Override
+        public String toString() {
+            return blocksWritten + " blocks written, " + blocksSkipped + " skipped in " + chunksVisited + 
+                " chunks (" + String.format("%.2f", getElapsedMillis()) + " ms)";
+        }
+    }
+}
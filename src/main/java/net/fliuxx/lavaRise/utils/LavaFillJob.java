@@ -0,0 +1,279 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+/**
+ * Resumable lava fill for a range of layers, processed a slice at a time
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaFillJob {
+    
+    // How many blocks are written between two clock reads
+    private static final int TIME_CHECK_INTERVAL = 64;
+    
+    private final World world;
+    private final ArenaColumns columns;
+    private final int[] chunkXs;
+    private final int[] chunkZs;
+    private final int[][] chunkColumns;
+    private final int fromY;
+    private final int toY;
+    private final long totalBlocks;
+    private final LavaPlacement placement;
+    private final BlockData staticLava;
+    private final LavaFillPlan plan;
+    private final BlockJournal journal;
+    private final int[] paletteRemap;
+    
+    // Cursor
+    private int chunkCursor;
+    private int yCursor;
+    private int columnCursor;
+    private int positionCursor;
+    private int sinceTimeCheck;
+    private Chunk currentChunk;
+    private int[] currentPositions;
+    private int[] currentOriginals;
+    
+    // Statistics
+    private long visitedBlocks;
+    private int blocksWritten;
+    private int blocksSkipped;
+    private long elapsedNanos;
+    private int slices;
+    private int plannedChunks;
+    
+    LavaFillJob(World world, ArenaColumns columns, int[] chunkXs, int[] chunkZs, int[][] chunkColumns, int fromY, int toY, 
+                LavaPlacement placement, BlockData staticLava, LavaFillPlan plan, BlockJournal journal) {
+        this.world = world;
+        this.columns = columns;
+        this.chunkXs = chunkXs;
+        this.chunkZs = chunkZs;
+        this.chunkColumns = chunkColumns;
+        this.fromY = fromY;
+        this.toY = toY;
+        this.placement = placement;
+        this.staticLava = staticLava;
+        this.plan = plan;
+        this.journal = journal;
+        
+        // Plan palette index -> journal palette index, resolved on first use
+        this.paletteRemap = plan != null ? new int[plan.getPaletteSize()] : new int[0];
+        Arrays.fill(paletteRemap, -1);
+        
+        long columnCount = 0;
+        for (int[] chunk : chunkColumns) {
+            columnCount += chunk.length;
+        }
+        this.totalBlocks = columnCount * Math.max(0, toY - fromY);
+        
+        this.chunkCursor = 0;
+        this.yCursor = fromY;
+        this.columnCursor = 0;
+    }
+    
+    /**
+     * Writes at most maxBlocks blocks or runs for at most maxNanos, whichever comes first.
+     * 
+     * @return true once every layer of the job has been written
+     */
+    public boolean process(int maxBlocks, long maxNanos) {
+        if (isComplete()) return true;
+        
+        long startTime = System.nanoTime();
+        int budget = maxBlocks;
+        sinceTimeCheck = 0;
+        
+        while (chunkCursor < chunkColumns.length) {
+            int[] chunkIndexes = chunkColumns[chunkCursor];
+            int baseX = chunkXs[chunkCursor] << 4;
+            int baseZ = chunkZs[chunkCursor] << 4;
+            
+            if (currentChunk == null) {
+                currentChunk = world.getChunkAt(chunkXs[chunkCursor], chunkZs[chunkCursor]);
+                currentPositions = plan != null ? plan.getPositions(chunkXs[chunkCursor], chunkZs[chunkCursor]) : null;
+                currentOriginals = plan != null ? plan.getOriginals(chunkXs[chunkCursor], chunkZs[chunkCursor]) : null;
+                
+                if (currentPositions != null) {
+                    // Positions left out of the plan were already lava or protected
+                    int skippedByPlan = Math.max(0, chunkIndexes.length * (toY - fromY) - currentPositions.length);
+                    visitedBlocks += skippedByPlan;
+                    blocksSkipped += skippedByPlan;
+                    plannedChunks++;
+                }
+            }
+            
+            if (currentPositions != null) {
+                // Planned chunk: write the precomputed positions without reading any block
+                while (positionCursor < currentPositions.length) {
+                    if (sliceExhausted(budget, startTime, maxNanos)) {
+                        finishSlice(startTime);
+                        return false;
+                    }
+                    
+                    int original = currentOriginals[positionCursor];
+                    int position = currentPositions[positionCursor++];
+                    int index = LavaFillPlan.unpackColumn(position);
+                    int y = plan.getFromY() + LavaFillPlan.unpackLayer(position);
+                    visitedBlocks++;
+                    
+                    // The border may have shrunk since this job was planned
+                    if (!columns.contains(baseX + (index & 15), baseZ + (index >> 4))) {
+                        blocksSkipped++;
+                        continue;
+                    }
+                    
+                    if (journal != null) {
+                        journal.record(baseX + (index & 15), y, baseZ + (index >> 4), remapOriginal(original));
+                    }
+                    
+                    placeLava(currentChunk.getBlock(index & 15, y, index >> 4));
+                    budget--;
+                }
+                
+                positionCursor = 0;
+            } else {
+                // Unplanned chunk: read every block and skip lava and protected blocks
+                while (yCursor < toY) {
+                    while (columnCursor < chunkIndexes.length) {
+                        if (sliceExhausted(budget, startTime, maxNanos)) {
+                            finishSlice(startTime);
+                            return false;
+                        }
+                        
+                        int index = chunkIndexes[columnCursor++];
+                        visitedBlocks++;
+                        
+                        // The border may have shrunk since this job was planned
+                        if (!columns.contains(baseX + (index & 15), baseZ + (index >> 4))) {
+                            blocksSkipped++;
+                            continue;
+                        }
+                        
+                        Block block = currentChunk.getBlock(index & 15, yCursor, index >> 4);
+                        Material blockType = block.getType();
+                        if (blockType == Material.LAVA || LavaFillEngine.isProtected(blockType)) {
+                            blocksSkipped++;
+                            continue;
+                        }
+                        
+                        if (journal != null) {
+                            journal.record(block.getX(), block.getY(), block.getZ(), block.getBlockData());
+                        }
+                        
+                        placeLava(block);
+                        budget--;
+                    }
+                    
+                    columnCursor = 0;
+                    yCursor++;
+                }
+                
+                yCursor = fromY;
+            }
+            
+            // Chunk done, move to the next one
+            currentChunk = null;
+            currentPositions = null;
+            currentOriginals = null;
+            chunkCursor++;
+        }
+        
+        finishSlice(startTime);
+        return true;
+    }
+    
+    private boolean sliceExhausted(int budget, long startTime, long maxNanos) {
+        if (budget <= 0) return true;
+        
+        if (++sinceTimeCheck >= TIME_CHECK_INTERVAL) {
+            sinceTimeCheck = 0;
+            return System.nanoTime() - startTime >= maxNanos;
+        }
+        return false;
+    }
+    
+    private int remapOriginal(int planIndex) {
+        int journalIndex = paletteRemap[planIndex];
+        if (journalIndex < 0) {
+            journalIndex = journal.paletteIndex(plan.getPaletteData(planIndex));
+            paletteRemap[planIndex] = journalIndex;
+        }
+        return journalIndex;
+    }
+    
+    private void placeLava(Block block) {
+        if (placement == LavaPlacement.STATIC) {
+            // No physics: no fluid ticks, no neighbour updates, no flowing
+            block.setBlockData(staticLava, false);
+        } else {
+            block.setType(Material.LAVA);
+        }
+        blocksWritten++;
+    }
+    
+    private void finishSlice(long startTime) {
+        elapsedNanos += System.nanoTime() - startTime;
+        slices++;
+    }
+    
+    public boolean isComplete() {
+        return chunkCursor >= chunkColumns.length;
+    }
+    
+    public int getFromY() {
+        return fromY;
+    }
+    
+    public int getToY() {
+        return toY;
+    }
+    
+    public LavaPlacement getPlacement() {
+        return placement;
+    }
+    
+    public LavaFillPlan getPlan() {
+        return plan;
+    }
+    
+    /**
+     * Number of chunks written from the precomputed plan instead of a live scan
+     */
+    public int getPlannedChunks() {
+        return plannedChunks;
+    }
+    
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+    
+    /**
+     * Number of block positions still to be visited by this job
+     */
+    public long getRemainingBlocks() {
+        return totalBlocks - visitedBlocks;
+    }
+    
+    public int getSlices() {
+        return slices;
+    }
+    
+    public int getBlocksWritten() {
+        return blocksWritten;
+    }
+    
+    /**
+     * Summary of the finished job; builds a new result, so only call it once the job is complete
+     */
+    public LavaFillEngine.FillResult getResult() {
+        return new LavaFillEngine.FillResult(blocksWritten, blocksSkipped, chunkColumns.length, elapsedNanos);
+    }
+}
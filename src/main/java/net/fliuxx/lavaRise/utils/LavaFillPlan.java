@@ -0,0 +1,198 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed list of positions to fill for a range of lava layers and the blocks they replace,
+ * built off-thread from chunk snapshots
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaFillPlan {
+    
+    private final int fromY;
+    private final int toY;
+    private final Map<Long, int[]> chunkPositions;
+    private final Map<Long, int[]> chunkOriginals;
+    private final List<BlockData> palette;
+    private long plannedBlocks;
+    
+    private LavaFillPlan(int fromY, int toY) {
+        this.fromY = fromY;
+        this.toY = toY;
+        this.chunkPositions = new HashMap<>();
+        this.chunkOriginals = new HashMap<>();
+        this.palette = new ArrayList<>();
+    }
+    
+    /**
+     * Takes snapshots of the loaded arena chunks. Must be called on the main thread;
+     * the returned capture is computed into a plan on any thread.
+     */
+    public static Capture capture(World world, ArenaColumns columns, int fromY, int toY) {
+        Capture capture = new Capture(Math.max(fromY, world.getMinHeight()), Math.min(toY, world.getMaxHeight()));
+        int[] buffer = new int[256];
+        
+        for (int chunkX = columns.getMinChunkX(); chunkX <= columns.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = columns.getMinChunkZ(); chunkZ <= columns.getMaxChunkZ(); chunkZ++) {
+                // Never load chunks just to plan - unplanned chunks are scanned live later
+                if (!world.isChunkLoaded(chunkX, chunkZ)) continue;
+                
+                int count = columns.collectChunkColumns(chunkX, chunkZ, buffer);
+                if (count == 0) continue;
+                
+                Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+                capture.snapshots.add(chunk.getChunkSnapshot(false, false, false));
+                capture.columns.add(Arrays.copyOf(buffer, count));
+            }
+        }
+        
+        return capture;
+    }
+    
+    /**
+     * Packs a position relative to the plan: layer offset in the high bits, local column index in the low 8 bits
+     */
+    public static int packPosition(int layer, int columnIndex) {
+        return (layer << 8) | columnIndex;
+    }
+    
+    public static int unpackLayer(int position) {
+        return position >>> 8;
+    }
+    
+    public static int unpackColumn(int position) {
+        return position & 0xFF;
+    }
+    
+    public boolean covers(int fromY, int toY) {
+        return this.fromY == fromY && this.toY == toY;
+    }
+    
+    /**
+     * Positions to fill in a chunk, or null when the chunk was not planned or has been invalidated
+     */
+    public int[] getPositions(int chunkX, int chunkZ) {
+        return chunkPositions.get(chunkKey(chunkX, chunkZ));
+    }
+    
+    /**
+     * Palette indexes of the blocks the positions of a chunk will replace, parallel to {@link #getPositions}
+     */
+    public int[] getOriginals(int chunkX, int chunkZ) {
+        return chunkOriginals.get(chunkKey(chunkX, chunkZ));
+    }
+    
+    public BlockData getPaletteData(int index) {
+        return palette.get(index);
+    }
+    
+    public int getPaletteSize() {
+        return palette.size();
+    }
+    
+    /**
+     * Drops the plan of a chunk whose blocks have changed since the snapshot was taken
+     */
+    public void invalidate(int chunkX, int chunkZ) {
+        chunkOriginals.remove(chunkKey(chunkX, chunkZ));
+        int[] removed = chunkPositions.remove(chunkKey(chunkX, chunkZ));
+        if (removed != null) {
+            plannedBlocks -= removed.length;
+        }
+    }
+    
+    public int getFromY() {
+        return fromY;
+    }
+    
+    public int getToY() {
+        return toY;
+    }
+    
+    public int getPlannedChunks() {
+        return chunkPositions.size();
+    }
+    
+    public long getPlannedBlocks() {
+        return plannedBlocks;
+    }
+    
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Chunk snapshots waiting to be turned into a plan
+     */
+    public static class Capture {
+        
+        private final int fromY;
+        private final int toY;
+        private final List<ChunkSnapshot> snapshots = new ArrayList<>();
+        private final List<int[]> columns = new ArrayList<>();
+        
+        private Capture(int fromY, int toY) {
+            this.fromY = fromY;
+            this.toY = toY;
+        }
+        
+        /**
+         * Reads the snapshots and keeps every position that is neither lava nor protected,
+         * together with the block it will replace. Safe to run off the main thread.
+         */
+        public LavaFillPlan compute() {
+            LavaFillPlan plan = new LavaFillPlan(fromY, toY);
+            Map<BlockData, Integer> paletteIndexes = new HashMap<>();
+            int layers = Math.max(0, toY - fromY);
+            
+            for (int i = 0; i < snapshots.size(); i++) {
+                ChunkSnapshot snapshot = snapshots.get(i);
+                int[] chunkColumns = columns.get(i);
+                int[] positions = new int[chunkColumns.length * layers];
+                int[] originals = new int[positions.length];
+                int count = 0;
+                
+                for (int layer = 0; layer < layers; layer++) {
+                    int y = fromY + layer;
+                    for (int index : chunkColumns) {
+                        Material type = snapshot.getBlockType(index & 15, y, index >> 4);
+                        if (type == Material.LAVA || LavaFillEngine.isProtected(type)) continue;
+                        
+                        BlockData original = snapshot.getBlockData(index & 15, y, index >> 4);
+                        Integer paletteIndex = paletteIndexes.get(original);
+                        if (paletteIndex == null) {
+                            paletteIndex = plan.palette.size();
+                            plan.palette.add(original);
+                            paletteIndexes.put(original, paletteIndex);
+                        }
+                        
+                        originals[count] = paletteIndex;
+                        positions[count++] = packPosition(layer, index);
+                    }
+                }
+                
+                long key = chunkKey(snapshot.getX(), snapshot.getZ());
+                plan.chunkPositions.put(key, Arrays.copyOf(positions, count));
+                plan.chunkOriginals.put(key, Arrays.copyOf(originals, count));
+                plan.plannedBlocks += count;
+            }
+            
+            return plan;
+        }
+        
+        public int getChunkCount() {
+            return snapshots.size();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package net.fliuxx.lavaRise.utils;
+
+/**
+ * How an arena represents its rising lava
+ * 
+ * @author Fl1uxxNoob
+ */
+public enum LavaMode {
+    BLOCKS,   // Lava layers are written into the world
+    LOGICAL   // Lava only exists as a Y level, drawn with display entities
+}
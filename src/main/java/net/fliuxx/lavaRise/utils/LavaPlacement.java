@@ -0,0 +1,11 @@
+package net.fliuxx.lavaRise.utils;
+
+/**
+ * How lava blocks are written into the arena
+ * 
+ * @author Fl1uxxNoob
+ */
+public enum LavaPlacement {
+    PHYSICS,  // Vanilla placement: flowing lava, neighbour updates, fire and stone forming
+    STATIC    // Still lava source blocks written without physics or neighbour updates
+}
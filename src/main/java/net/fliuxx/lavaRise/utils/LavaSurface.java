@@ -0,0 +1,114 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Display;
+import org.bukkit.util.Transformation;
+import org.joml.AxisAngle4f;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Visible lava surface for logical lava, drawn with one block display per chunk
+ * 
+ * @author Fl1uxxNoob
+ */
+public class LavaSurface {
+    
+    // Fluids are not rendered by block displays, so the surface uses a solid lava-looking block
+    private static final Material SURFACE_MATERIAL = Material.MAGMA_BLOCK;
+    private static final float SURFACE_THICKNESS = 0.9f;
+    
+    private final World world;
+    private final Map<Long, BlockDisplay> displays;
+    private final int[] columnBuffer = new int[256];
+    private final Location moveLocation;
+    
+    public LavaSurface(World world) {
+        this.world = world;
+        this.displays = new HashMap<>();
+        this.moveLocation = new Location(world, 0, 0, 0);
+    }
+    
+    /**
+     * Spawns a display for every chunk that still has live columns
+     */
+    public void create(ArenaColumns columns, int level) {
+        BlockData surfaceBlock = SURFACE_MATERIAL.createBlockData();
+        
+        for (int chunkX = columns.getMinChunkX(); chunkX <= columns.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = columns.getMinChunkZ(); chunkZ <= columns.getMaxChunkZ(); chunkZ++) {
+                if (columns.collectChunkColumns(chunkX, chunkZ, columnBuffer) == 0) continue;
+                
+                Location location = new Location(world, chunkX << 4, surfaceY(level), chunkZ << 4);
+                BlockDisplay display = world.spawn(location, BlockDisplay.class, entity -> {
+                    entity.setBlock(surfaceBlock);
+                    entity.setTransformation(new Transformation(
+                        new Vector3f(), new AxisAngle4f(), 
+                        new Vector3f(16f, SURFACE_THICKNESS, 16f), new AxisAngle4f()));
+                    entity.setBrightness(new Display.Brightness(15, 15));
+                    entity.setPersistent(false);
+                });
+                
+                displays.put(chunkKey(chunkX, chunkZ), display);
+            }
+        }
+    }
+    
+    /**
+     * Moves every display so that the surface sits on top of the given lava level
+     */
+    public void moveTo(int level) {
+        double y = surfaceY(level);
+        
+        for (BlockDisplay display : displays.values()) {
+            display.getLocation(moveLocation);
+            moveLocation.setY(y);
+            display.teleport(moveLocation);
+        }
+    }
+    
+    /**
+     * Removes the displays of chunks that no longer contain live columns
+     */
+    public void shrink(ArenaColumns columns) {
+        Iterator<Map.Entry<Long, BlockDisplay>> iterator = displays.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, BlockDisplay> entry = iterator.next();
+            long key = entry.getKey();
+            int chunkX = (int) key;
+            int chunkZ = (int) (key >> 32);
+            
+            if (columns.collectChunkColumns(chunkX, chunkZ, columnBuffer) == 0) {
+                entry.getValue().remove();
+                iterator.remove();
+            }
+        }
+    }
+    
+    public void remove() {
+        for (BlockDisplay display : displays.values()) {
+            display.remove();
+        }
+        displays.clear();
+    }
+    
+    public int getDisplayCount() {
+        return displays.size();
+    }
+    
+    private static double surfaceY(int level) {
+        // Lava fills every block below the level, so its surface is at the top of level - 1
+        return level - SURFACE_THICKNESS;
+    }
+    
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkZ << 32) | (chunkX & 0xFFFFFFFFL);
+    }
+}
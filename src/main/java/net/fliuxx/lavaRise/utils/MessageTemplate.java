@@ -0,0 +1,128 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message parsed once when messages.yml is loaded. Colour codes are translated up front and
+ * the %placeholders% are kept as slots between the literal segments, so rendering is a single
+ * pass over the segments. Messages without placeholders are kept as ready-to-send strings.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class MessageTemplate {
+    
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+    private final String prefix;
+    private final String text;
+    private final String prefixedText;
+    
+    private MessageTemplate(String[] literals, String[] placeholders, String prefix) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.prefix = prefix;
+        
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        
+        this.text = placeholders.length == 0 ? literals[0] : null;
+        this.prefixedText = placeholders.length == 0 ? prefix + literals[0] : null;
+    }
+    
+    /**
+     * @param raw the message as written in messages.yml, with &amp; colour codes
+     * @param prefix the already translated prefix put in front by {@link #renderPrefixed(String...)}
+     */
+    public static MessageTemplate compile(String raw, String prefix) {
+        String translated = ChatColor.translateAlternateColorCodes('&', raw);
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        
+        int literalStart = 0;
+        int index = translated.indexOf('%');
+        while (index >= 0) {
+            int end = placeholderEnd(translated, index);
+            if (end < 0) {
+                // A lone percent sign, e.g. the one after %percent% in "%percent%%"
+                index = translated.indexOf('%', index + 1);
+                continue;
+            }
+            
+            literals.add(translated.substring(literalStart, index));
+            placeholders.add(translated.substring(index, end + 1));
+            literalStart = end + 1;
+            index = translated.indexOf('%', literalStart);
+        }
+        literals.add(translated.substring(literalStart));
+        
+        return new MessageTemplate(literals.toArray(new String[0]), placeholders.toArray(new String[0]), prefix);
+    }
+    
+    /**
+     * Index of the closing percent sign of a %name% placeholder starting at start, or -1
+     */
+    private static int placeholderEnd(String text, int start) {
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%') {
+                return i > start + 1 ? i : -1;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Fills the placeholders in
+     * 
+     * @param replacements placeholder and value pairs, e.g. "%level%", "42"; values are inserted as they are
+     */
+    public String render(String... replacements) {
+        if (text != null) return text;
+        
+        return render(new StringBuilder(literalLength + 16 * placeholders.length), replacements).toString();
+    }
+    
+    /**
+     * Like {@link #render(String...)} with the plugin prefix in front
+     */
+    public String renderPrefixed(String... replacements) {
+        if (prefixedText != null) return prefixedText;
+        
+        StringBuilder builder = new StringBuilder(prefix.length() + literalLength + 16 * placeholders.length);
+        builder.append(prefix);
+        return render(builder, replacements).toString();
+    }
+    
+    private StringBuilder render(StringBuilder builder, String[] replacements) {
+        for (int slot = 0; slot < placeholders.length; slot++) {
+            builder.append(literals[slot]);
+            builder.append(valueOf(placeholders[slot], replacements));
+        }
+        builder.append(literals[placeholders.length]);
+        return builder;
+    }
+    
+    private static String valueOf(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (placeholder.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        // Unknown placeholders stay visible, like before
+        return placeholder;
+    }
+    
+    public boolean isStatic() {
+        return placeholders.length == 0;
+    }
+}
@@ -0,0 +1,187 @@
+package net.fliuxx.lavaRise.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Membership of the players in one game. Every participant owns a slot whose state lives in a
+ * primitive array, so isAlive and isSpectator are a map lookup and an array read, without allocating.
+ * The alive and spectator lists handed out are immutable snapshots, rebuilt only after membership changed.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class ParticipantIndex {
+    
+    private static final byte NONE = 0;
+    private static final byte ALIVE = 1;
+    private static final byte SPECTATOR = 2;
+    
+    private final Map<UUID, Integer> slots;
+    private UUID[] uuids;
+    private byte[] states;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+    
+    private int aliveCount;
+    private int spectatorCount;
+    
+    private List<UUID> aliveSnapshot;
+    private List<UUID> spectatorSnapshot;
+    private boolean snapshotsStale;
+    
+    public ParticipantIndex() {
+        this.slots = new HashMap<>();
+        this.uuids = new UUID[16];
+        this.states = new byte[16];
+        this.freeSlots = new int[16];
+        this.aliveSnapshot = Collections.emptyList();
+        this.spectatorSnapshot = Collections.emptyList();
+    }
+    
+    public boolean isAlive(UUID uuid) {
+        return state(uuid) == ALIVE;
+    }
+    
+    public boolean isSpectator(UUID uuid) {
+        return state(uuid) == SPECTATOR;
+    }
+    
+    public boolean contains(UUID uuid) {
+        return slots.containsKey(uuid);
+    }
+    
+    private byte state(UUID uuid) {
+        Integer slot = slots.get(uuid);
+        return slot != null ? states[slot] : NONE;
+    }
+    
+    /**
+     * @return false when the player was already alive
+     */
+    public boolean setAlive(UUID uuid) {
+        return setState(uuid, ALIVE);
+    }
+    
+    /**
+     * @return false when the player was already spectating
+     */
+    public boolean setSpectator(UUID uuid) {
+        return setState(uuid, SPECTATOR);
+    }
+    
+    private boolean setState(UUID uuid, byte state) {
+        Integer slot = slots.get(uuid);
+        if (slot == null) {
+            slot = allocateSlot(uuid);
+        } else if (states[slot] == state) {
+            return false;
+        } else {
+            count(states[slot], -1);
+        }
+        
+        states[slot] = state;
+        count(state, 1);
+        snapshotsStale = true;
+        return true;
+    }
+    
+    /**
+     * @return false when the player was not part of the game
+     */
+    public boolean remove(UUID uuid) {
+        Integer slot = slots.remove(uuid);
+        if (slot == null) return false;
+        
+        count(states[slot], -1);
+        states[slot] = NONE;
+        uuids[slot] = null;
+        freeSlots[freeCount++] = slot;
+        snapshotsStale = true;
+        return true;
+    }
+    
+    public void clear() {
+        slots.clear();
+        Arrays.fill(uuids, 0, slotCount, null);
+        Arrays.fill(states, 0, slotCount, NONE);
+        freeCount = 0;
+        slotCount = 0;
+        aliveCount = 0;
+        spectatorCount = 0;
+        snapshotsStale = true;
+    }
+    
+    private int allocateSlot(UUID uuid) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == uuids.length) {
+                uuids = Arrays.copyOf(uuids, slotCount * 2);
+                states = Arrays.copyOf(states, slotCount * 2);
+                freeSlots = Arrays.copyOf(freeSlots, slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        
+        uuids[slot] = uuid;
+        slots.put(uuid, slot);
+        return slot;
+    }
+    
+    private void count(byte state, int delta) {
+        if (state == ALIVE) {
+            aliveCount += delta;
+        } else if (state == SPECTATOR) {
+            spectatorCount += delta;
+        }
+    }
+    
+    /**
+     * Immutable snapshot of the alive players; safe to iterate while players are eliminated
+     */
+    public List<UUID> getAlive() {
+        rebuildSnapshots();
+        return aliveSnapshot;
+    }
+    
+    /**
+     * Immutable snapshot of the spectators
+     */
+    public List<UUID> getSpectators() {
+        rebuildSnapshots();
+        return spectatorSnapshot;
+    }
+    
+    private void rebuildSnapshots() {
+        if (!snapshotsStale) return;
+        
+        List<UUID> alive = new ArrayList<>(aliveCount);
+        List<UUID> watching = new ArrayList<>(spectatorCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (states[slot] == ALIVE) {
+                alive.add(uuids[slot]);
+            } else if (states[slot] == SPECTATOR) {
+                watching.add(uuids[slot]);
+            }
+        }
+        
+        aliveSnapshot = Collections.unmodifiableList(alive);
+        spectatorSnapshot = Collections.unmodifiableList(watching);
+        snapshotsStale = false;
+    }
+    
+    public int getAliveCount() {
+        return aliveCount;
+    }
+    
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+}
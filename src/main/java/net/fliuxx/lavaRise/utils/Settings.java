@@ -0,0 +1,316 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of config.yml, read and validated once when the configuration is loaded.
+ * Game code reads plain fields instead of walking the configuration on every call.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class Settings {
+    
+    // Game
+    private final int minPlayers;
+    private final int maxPlayers;
+    private final int maxConcurrentGames;
+    private final int initialCountdown;
+    private final int pvpCountdown;
+    private final int lavaRiseInterval;
+    private final int lavaRiseAmount;
+    private final int startingLavaLevel;
+    
+    // Lava
+    private final LavaMode defaultLavaMode;
+    private final LavaPlacement lavaPlacement;
+    private final int lavaMaxBlocksPerTick;
+    private final int lavaMaxMicrosPerTick;
+    private final int lavaDamageInterval;
+    private final double lavaDamageAmount;
+    private final int lavaFireTicks;
+    private final int lavaLethalDepth;
+    
+    // World
+    private final String worldName;
+    private final boolean worldTemplateEnabled;
+    private final String worldTemplateName;
+    private final int borderInitialSize;
+    private final int borderFinalSize;
+    private final int borderShrinkTime;
+    private final int spawnHeight;
+    private final int maxHeight;
+    
+    // Arena setup
+    private final int arenaSetupCount;
+    private final int arenaSetupCandidates;
+    private final int arenaSampleStride;
+    private final double arenaMaxWaterRatio;
+    
+    // Teleport
+    private final String spawnWorld;
+    private final double spawnX;
+    private final double spawnY;
+    private final double spawnZ;
+    private final int gameSpreadDistance;
+    private final int teleportBatchSize;
+    private final int spawnSpacing;
+    
+    // Display
+    private final boolean scoreboardEnabled;
+    private final int scoreboardUpdateInterval;
+    private final boolean bossBarEnabled;
+    
+    private Settings(ConfigurationSection config, List<String> errors) {
+        this.minPlayers = atLeast(config, "game.min_players", 2, 1, errors);
+        this.maxPlayers = atLeast(config, "game.max_players", 20, minPlayers, errors);
+        this.maxConcurrentGames = atLeast(config, "game.max_concurrent_games", 4, 1, errors);
+        this.initialCountdown = atLeast(config, "game.initial_countdown", 60, 0, errors);
+        this.pvpCountdown = atLeast(config, "game.pvp_countdown", 180, 0, errors);
+        this.lavaRiseInterval = atLeast(config, "game.lava_rise_interval", 5, 1, errors);
+        this.lavaRiseAmount = atLeast(config, "game.lava_rise_amount", 1, 1, errors);
+        this.startingLavaLevel = config.getInt("game.starting_lava_level", 0);
+        
+        this.defaultLavaMode = enumValue(config, "lava.default_mode", LavaMode.BLOCKS, errors);
+        this.lavaPlacement = enumValue(config, "lava.placement", LavaPlacement.STATIC, errors);
+        this.lavaMaxBlocksPerTick = atLeast(config, "lava.max_blocks_per_tick", 2000, 1, errors);
+        this.lavaMaxMicrosPerTick = atLeast(config, "lava.max_micros_per_tick", 5000, 1, errors);
+        this.lavaDamageInterval = atLeast(config, "lava.damage.interval_ticks", 10, 1, errors);
+        this.lavaDamageAmount = config.getDouble("lava.damage.amount", 4.0);
+        if (lavaDamageAmount < 0) {
+            errors.add("lava.damage.amount must not be negative");
+        }
+        this.lavaFireTicks = atLeast(config, "lava.damage.fire_ticks", 100, 0, errors);
+        this.lavaLethalDepth = atLeast(config, "lava.damage.lethal_depth", 3, 1, errors);
+        
+        this.worldName = name(config, "world.name", "lavarise_world", errors);
+        this.worldTemplateEnabled = config.getBoolean("world.template.enabled", false);
+        this.worldTemplateName = name(config, "world.template.name", "lavarise_template", errors);
+        this.borderFinalSize = atLeast(config, "world.border_final_size", 20, 1, errors);
+        this.borderInitialSize = atLeast(config, "world.border_initial_size", 200, borderFinalSize, errors);
+        this.borderShrinkTime = atLeast(config, "world.border_shrink_time", 600, 0, errors);
+        this.spawnHeight = config.getInt("world.spawn_height", 100);
+        this.maxHeight = atLeast(config, "world.max_height", 256, startingLavaLevel + 1, errors);
+        
+        this.arenaSetupCount = atLeast(config, "setup.arena_count", 4, 1, errors);
+        this.arenaSetupCandidates = atLeast(config, "setup.candidates", 40, 1, errors);
+        this.arenaSampleStride = atLeast(config, "setup.sample_stride", 2, 1, errors);
+        this.arenaMaxWaterRatio = config.getDouble("setup.max_water_ratio", 0.3);
+        if (arenaMaxWaterRatio < 0 || arenaMaxWaterRatio > 1) {
+            errors.add("setup.max_water_ratio must be between 0 and 1");
+        }
+        
+        this.spawnWorld = name(config, "teleport.spawn_world", "world", errors);
+        this.spawnX = config.getDouble("teleport.spawn_x", 0);
+        this.spawnY = config.getDouble("teleport.spawn_y", 100);
+        this.spawnZ = config.getDouble("teleport.spawn_z", 0);
+        this.gameSpreadDistance = atLeast(config, "teleport.game_spread_distance", 50, 0, errors);
+        this.teleportBatchSize = atLeast(config, "teleport.batch_size", 5, 1, errors);
+        this.spawnSpacing = atLeast(config, "teleport.spawn_spacing", 8, 1, errors);
+        
+        this.scoreboardEnabled = config.getBoolean("scoreboard.enabled", true);
+        this.scoreboardUpdateInterval = atLeast(config, "scoreboard.update_interval", 20, 1, errors);
+        this.bossBarEnabled = config.getBoolean("bossbar.enabled", true);
+    }
+    
+    /**
+     * Reads and validates the configuration
+     * 
+     * @throws IllegalArgumentException listing every invalid value, so nothing half-valid is ever used
+     */
+    public static Settings load(ConfigurationSection config) {
+        List<String> errors = new ArrayList<>();
+        Settings settings = new Settings(config, errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", errors));
+        }
+        return settings;
+    }
+    
+    private static int atLeast(ConfigurationSection config, String path, int def, int min, List<String> errors) {
+        if (config.contains(path) && !config.isInt(path)) {
+            errors.add(path + " must be a whole number");
+            return def;
+        }
+        
+        int value = config.getInt(path, def);
+        if (value < min) {
+            errors.add(path + " must be at least " + min + " (is " + value + ")");
+        }
+        return value;
+    }
+    
+    private static String name(ConfigurationSection config, String path, String def, List<String> errors) {
+        String value = config.getString(path, def);
+        if (value == null || value.trim().isEmpty()) {
+            errors.add(path + " must not be empty");
+            return def;
+        }
+        return value;
+    }
+    
+    private static <E extends Enum<E>> E enumValue(ConfigurationSection config, String path, E def, List<String> errors) {
+        String value = config.getString(path, def.name());
+        try {
+            return Enum.valueOf(def.getDeclaringClass(), value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            errors.add(path + " has unknown value '" + value + "'");
+            return def;
+        }
+    }
+    
+    // Getters
+    public int getMinPlayers() {
+        return minPlayers;
+    }
+    
+    public int getMaxPlayers() {
+        return maxPlayers;
+    }
+    
+    public int getMaxConcurrentGames() {
+        return maxConcurrentGames;
+    }
+    
+    public int getInitialCountdown() {
+        return initialCountdown;
+    }
+    
+    public int getPvpCountdown() {
+        return pvpCountdown;
+    }
+    
+    public int getLavaRiseInterval() {
+        return lavaRiseInterval;
+    }
+    
+    public int getLavaRiseAmount() {
+        return lavaRiseAmount;
+    }
+    
+    public int getStartingLavaLevel() {
+        return startingLavaLevel;
+    }
+    
+    public LavaMode getDefaultLavaMode() {
+        return defaultLavaMode;
+    }
+    
+    public LavaPlacement getLavaPlacement() {
+        return lavaPlacement;
+    }
+    
+    public int getLavaMaxBlocksPerTick() {
+        return lavaMaxBlocksPerTick;
+    }
+    
+    public int getLavaMaxMicrosPerTick() {
+        return lavaMaxMicrosPerTick;
+    }
+    
+    public int getLavaDamageInterval() {
+        return lavaDamageInterval;
+    }
+    
+    public double getLavaDamageAmount() {
+        return lavaDamageAmount;
+    }
+    
+    public int getLavaFireTicks() {
+        return lavaFireTicks;
+    }
+    
+    public int getLavaLethalDepth() {
+        return lavaLethalDepth;
+    }
+    
+    public String getWorldName() {
+        return worldName;
+    }
+    
+    public boolean isWorldTemplateEnabled() {
+        return worldTemplateEnabled;
+    }
+    
+    public String getWorldTemplateName() {
+        return worldTemplateName;
+    }
+    
+    public int getBorderInitialSize() {
+        return borderInitialSize;
+    }
+    
+    public int getBorderFinalSize() {
+        return borderFinalSize;
+    }
+    
+    public int getBorderShrinkTime() {
+        return borderShrinkTime;
+    }
+    
+    public int getSpawnHeight() {
+        return spawnHeight;
+    }
+    
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+    
+    public int getArenaSetupCount() {
+        return arenaSetupCount;
+    }
+    
+    public int getArenaSetupCandidates() {
+        return arenaSetupCandidates;
+    }
+    
+    public int getArenaSampleStride() {
+        return arenaSampleStride;
+    }
+    
+    public double getArenaMaxWaterRatio() {
+        return arenaMaxWaterRatio;
+    }
+    
+    public String getSpawnWorld() {
+        return spawnWorld;
+    }
+    
+    public double getSpawnX() {
+        return spawnX;
+    }
+    
+    public double getSpawnY() {
+        return spawnY;
+    }
+    
+    public double getSpawnZ() {
+        return spawnZ;
+    }
+    
+    public int getGameSpreadDistance() {
+        return gameSpreadDistance;
+    }
+    
+    public int getTeleportBatchSize() {
+        return teleportBatchSize;
+    }
+    
+    public int getSpawnSpacing() {
+        return spawnSpacing;
+    }
+    
+    public boolean isScoreboardEnabled() {
+        return scoreboardEnabled;
+    }
+    
+    public int getScoreboardUpdateInterval() {
+        return scoreboardUpdateInterval;
+    }
+    
+    public boolean isBossBarEnabled() {
+        return bossBarEnabled;
+    }
+}
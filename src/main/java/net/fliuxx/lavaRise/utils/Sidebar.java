@@ -0,0 +1,86 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.ChatColor;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+
+/**
+ * Sidebar made of fixed line slots. Every slot is an invisible entry whose text is the prefix
+ * of its own team, so changing a line is a single team update instead of removing and re-adding
+ * the score. The last text of every slot is kept and unchanged lines are not sent again.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class Sidebar {
+    
+    public static final int MAX_LINES = 15;
+    
+    private final Objective objective;
+    private final Scoreboard scoreboard;
+    private final Team[] teams;
+    private final String[] entries;
+    private final String[] lines;
+    private String title;
+    private int lineCount;
+    
+    public Sidebar(Scoreboard scoreboard, String name, String title) {
+        this.scoreboard = scoreboard;
+        this.objective = scoreboard.registerNewObjective(name, "dummy", title);
+        this.objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        this.title = title;
+        this.teams = new Team[MAX_LINES];
+        this.entries = new String[MAX_LINES];
+        this.lines = new String[MAX_LINES];
+        this.lineCount = 0;
+        
+        ChatColor[] colors = ChatColor.values();
+        for (int i = 0; i < MAX_LINES; i++) {
+            // A colour code followed by a reset renders as nothing and is unique per slot
+            entries[i] = colors[i].toString() + ChatColor.RESET;
+            teams[i] = scoreboard.registerNewTeam(name + "_" + i);
+            teams[i].addEntry(entries[i]);
+        }
+    }
+    
+    public void setTitle(String newTitle) {
+        if (newTitle.equals(title)) return;
+        
+        title = newTitle;
+        objective.setDisplayName(newTitle);
+    }
+    
+    /**
+     * Sets the text of a line, counted from the top. Lines past the current line count are shown.
+     */
+    public void setLine(int index, String text) {
+        if (index >= lineCount) {
+            setLineCount(index + 1);
+        }
+        if (text.equals(lines[index])) return;
+        
+        lines[index] = text;
+        teams[index].setPrefix(text);
+    }
+    
+    /**
+     * Shows the first count lines and hides the rest
+     */
+    public void setLineCount(int count) {
+        count = Math.max(0, Math.min(MAX_LINES, count));
+        
+        for (int i = lineCount; i < count; i++) {
+            // Fixed scores keep every slot in place however many lines are shown
+            objective.getScore(entries[i]).setScore(MAX_LINES - i);
+        }
+        for (int i = count; i < lineCount; i++) {
+            scoreboard.resetScores(entries[i]);
+        }
+        lineCount = count;
+    }
+    
+    public int getLineCount() {
+        return lineCount;
+    }
+}
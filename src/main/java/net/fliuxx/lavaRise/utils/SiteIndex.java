@@ -0,0 +1,186 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.block.Biome;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid index of the arena sites scanned so far and of the arena centers already claimed,
+ * persisted so later setups can reuse the scores without loading any chunk.
+ * Lookups only visit the grid cells around a position.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class SiteIndex {
+    
+    private static final int CELL_SIZE = 256;
+    
+    private final Map<Long, List<ArenaSite>> siteCells;
+    private final Map<Long, List<int[]>> claimCells;
+    private final List<ArenaSite> sites;
+    private Long seed;
+    private boolean sorted;
+    
+    public SiteIndex() {
+        this.siteCells = new HashMap<>();
+        this.claimCells = new HashMap<>();
+        this.sites = new ArrayList<>();
+        this.seed = null;
+        this.sorted = true;
+    }
+    
+    public void add(ArenaSite site) {
+        sites.add(site);
+        siteCells.computeIfAbsent(cellKey(site.getX(), site.getZ()), k -> new ArrayList<>()).add(site);
+        sorted = false;
+    }
+    
+    /**
+     * Marks an arena center as taken so no other arena is placed over it
+     */
+    public void claim(int x, int z) {
+        claimCells.computeIfAbsent(cellKey(x, z), k -> new ArrayList<>()).add(new int[]{x, z});
+    }
+    
+    /**
+     * Whether a scanned site lies within distance blocks of the position
+     */
+    public boolean isScanned(int x, int z, int distance) {
+        int reach = distance / CELL_SIZE + 1;
+        for (int cellX = cell(x) - reach; cellX <= cell(x) + reach; cellX++) {
+            for (int cellZ = cell(z) - reach; cellZ <= cell(z) + reach; cellZ++) {
+                List<ArenaSite> cellSites = siteCells.get(key(cellX, cellZ));
+                if (cellSites == null) continue;
+                
+                for (ArenaSite site : cellSites) {
+                    if (Math.abs(site.getX() - x) <= distance && Math.abs(site.getZ() - z) <= distance) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether an arena of the given size centered on the position would overlap a claimed arena
+     */
+    public boolean isClaimed(int x, int z, int size) {
+        int reach = size / CELL_SIZE + 1;
+        for (int cellX = cell(x) - reach; cellX <= cell(x) + reach; cellX++) {
+            for (int cellZ = cell(z) - reach; cellZ <= cell(z) + reach; cellZ++) {
+                List<int[]> claims = claimCells.get(key(cellX, cellZ));
+                if (claims == null) continue;
+                
+                for (int[] claim : claims) {
+                    if (Math.abs(claim[0] - x) < size && Math.abs(claim[1] - z) < size) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Best scoring sites that are dry enough, unclaimed and do not overlap each other
+     */
+    public List<ArenaSite> findBestSites(int count, double maxWaterRatio, int size) {
+        if (!sorted) {
+            sites.sort(Comparator.comparingDouble(ArenaSite::getScore).reversed());
+            sorted = true;
+        }
+        
+        List<ArenaSite> best = new ArrayList<>();
+        for (ArenaSite site : sites) {
+            if (best.size() >= count) break;
+            if (site.getWaterRatio() >= maxWaterRatio) continue;
+            if (isClaimed(site.getX(), site.getZ(), size)) continue;
+            if (best.stream().anyMatch(other -> other.overlaps(site.getX(), site.getZ(), size))) continue;
+            
+            best.add(site);
+        }
+        return best;
+    }
+    
+    /**
+     * Forgets every scanned site, e.g. when the arena world was generated from another seed
+     */
+    public void reset(long newSeed) {
+        sites.clear();
+        siteCells.clear();
+        seed = newSeed;
+        sorted = true;
+    }
+    
+    /**
+     * Seed of the world the sites were scanned in, or null when nothing was scanned yet
+     */
+    public Long getSeed() {
+        return seed;
+    }
+    
+    public int size() {
+        return sites.size();
+    }
+    
+    public void save(File file) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        if (seed != null) {
+            config.set("seed", seed);
+        }
+        
+        // One compact line per site: x;z;y;score;water;deviation;biome
+        List<String> lines = new ArrayList<>(sites.size());
+        for (ArenaSite site : sites) {
+            lines.add(site.getX() + ";" + site.getZ() + ";" + site.getSurfaceY() + ";" + site.getScore() + ";" + 
+                site.getWaterRatio() + ";" + site.getHeightDeviation() + ";" + 
+                (site.getBiome() != null ? site.getBiome().name() : ""));
+        }
+        config.set("sites", lines);
+        config.save(file);
+    }
+    
+    public static SiteIndex load(File file) {
+        SiteIndex index = new SiteIndex();
+        if (!file.exists()) return index;
+        
+        YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+        if (config.contains("seed")) {
+            index.seed = config.getLong("seed");
+        }
+        
+        for (String line : config.getStringList("sites")) {
+            String[] parts = line.split(";", -1);
+            if (parts.length < 7) continue;
+            
+            try {
+                Biome biome = parts[6].isEmpty() ? null : Biome.valueOf(parts[6]);
+                index.add(new ArenaSite(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), 
+                    Double.parseDouble(parts[3]), Double.parseDouble(parts[4]), Double.parseDouble(parts[5]), biome));
+            } catch (IllegalArgumentException e) {
+                // Skip sites written by an older or newer version
+            }
+        }
+        return index;
+    }
+    
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+    
+    private static long cellKey(int x, int z) {
+        return key(cell(x), cell(z));
+    }
+    
+    private static long key(int cellX, int cellZ) {
+        return ((long) cellZ << 32) | (cellX & 0xFFFFFFFFL);
+    }
+}
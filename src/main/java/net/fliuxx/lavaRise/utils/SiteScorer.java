@@ -0,0 +1,108 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.block.Biome;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scores candidate arena sites from chunk snapshots. Safe to run off the main thread.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class SiteScorer {
+    
+    // Surfaces below this height are most likely ocean floor or swamp
+    private static final int MIN_SURFACE_Y = 60;
+    
+    private static final Set<Material> WATER_SURFACES = EnumSet.of(
+        Material.WATER, Material.LAVA, Material.ICE, Material.PACKED_ICE, Material.BLUE_ICE,
+        Material.KELP, Material.KELP_PLANT, Material.SEAGRASS, Material.TALL_SEAGRASS, Material.LILY_PAD
+    );
+    
+    private SiteScorer() {
+    }
+    
+    /**
+     * Reads the surface of every column of the snapshots within radius of the site center.
+     * 
+     * @param chunks snapshots taken with the max block Y heightmap and biomes included; may be a
+     *               sample of the chunks around the site, the statistics are per column read
+     * @return the scored site, or null when none of the snapshots covers the sampled area
+     */
+    public static ArenaSite score(int centerX, int centerZ, int radius, int minY, List<ChunkSnapshot> chunks) {
+        int columns = 0;
+        int waterColumns = 0;
+        int lowColumns = 0;
+        long heightSum = 0;
+        long heightSquaredSum = 0;
+        int centerY = MIN_SURFACE_Y;
+        Map<Biome, Integer> biomeCounts = new HashMap<>();
+        
+        for (ChunkSnapshot chunk : chunks) {
+            int baseX = chunk.getX() << 4;
+            int baseZ = chunk.getZ() << 4;
+            
+            for (int localZ = 0; localZ < 16; localZ++) {
+                if (Math.abs(baseZ + localZ - centerZ) > radius) continue;
+                
+                for (int localX = 0; localX < 16; localX++) {
+                    if (Math.abs(baseX + localX - centerX) > radius) continue;
+                    
+                    int y = Math.max(minY, chunk.getHighestBlockYAt(localX, localZ));
+                    Material surface = chunk.getBlockType(localX, y, localZ);
+                    if (surface.isAir() && y > minY) {
+                        surface = chunk.getBlockType(localX, --y, localZ);
+                    }
+                    Biome biome = chunk.getBiome(localX, y, localZ);
+                    
+                    columns++;
+                    heightSum += y;
+                    heightSquaredSum += (long) y * y;
+                    biomeCounts.merge(biome, 1, Integer::sum);
+                    
+                    if (WATER_SURFACES.contains(surface) || isWaterBiome(biome)) {
+                        waterColumns++;
+                    }
+                    if (y < MIN_SURFACE_Y) {
+                        lowColumns++;
+                    }
+                    if (baseX + localX == centerX && baseZ + localZ == centerZ) {
+                        centerY = y;
+                    }
+                }
+            }
+        }
+        
+        if (columns == 0) return null;
+        
+        double waterRatio = waterColumns / (double) columns;
+        double lowRatio = lowColumns / (double) columns;
+        double meanHeight = heightSum / (double) columns;
+        double heightDeviation = Math.sqrt(Math.max(0.0, heightSquaredSum / (double) columns - meanHeight * meanHeight));
+        
+        Biome dominantBiome = null;
+        int dominantCount = 0;
+        for (Map.Entry<Biome, Integer> entry : biomeCounts.entrySet()) {
+            if (entry.getValue() > dominantCount) {
+                dominantBiome = entry.getKey();
+                dominantCount = entry.getValue();
+            }
+        }
+        
+        // Dry, high and flat land scores best
+        double score = 100.0 * (1.0 - waterRatio) - 50.0 * lowRatio - 2.0 * heightDeviation;
+        
+        return new ArenaSite(centerX, centerZ, centerY, score, waterRatio, heightDeviation, dominantBiome);
+    }
+    
+    private static boolean isWaterBiome(Biome biome) {
+        String name = biome.name();
+        return name.contains("OCEAN") || name.contains("RIVER");
+    }
+}
@@ -0,0 +1,46 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Precomputed spawn points of one arena, in random order. Kept with the arena and reused by every
+ * game played on it, so picking a spawn is an array read instead of a search of the live world.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class SpawnPool {
+    
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] zs;
+    private final int spread;
+    private final int spacing;
+    
+    SpawnPool(int[] xs, int[] ys, int[] zs, int spread, int spacing) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.spread = spread;
+        this.spacing = spacing;
+    }
+    
+    public int size() {
+        return xs.length;
+    }
+    
+    /**
+     * The spawn point at this index, wrapping around; the feet of a player standing on safe ground
+     */
+    public Location get(World world, int index) {
+        int slot = Math.floorMod(index, xs.length);
+        return new Location(world, xs[slot] + 0.5, ys[slot], zs[slot] + 0.5);
+    }
+    
+    /**
+     * Whether the pool was sampled with these settings, or has to be sampled again
+     */
+    public boolean matches(int spread, int spacing) {
+        return this.spread == spread && this.spacing == spacing;
+    }
+}
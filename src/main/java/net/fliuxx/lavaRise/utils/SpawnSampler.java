@@ -0,0 +1,224 @@
+package net.fliuxx.lavaRise.utils;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Samples the spawn points of an arena from chunk snapshots. Safe to run off the main thread.
+ * 
+ * The safe columns of the spawn area are read from the heightmaps first, then filled with
+ * Poisson-disk sampling (Bridson), so every two spawn points are at least the spacing apart
+ * while the area is still covered evenly.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class SpawnSampler {
+    
+    private static final int NO_SPAWN = Integer.MIN_VALUE;
+    
+    // Candidates tried around a point before it stops growing the pattern
+    private static final int CANDIDATES_PER_POINT = 30;
+    
+    // Random columns tried in a row without finding room for a new point before sampling stops;
+    // water and cliffs can split the area, so the pattern is restarted wherever there is room
+    private static final int MAX_SEED_MISSES = 200;
+    
+    // Grass, flowers and snow layers the heightmap may report above the ground
+    private static final int MAX_COVER_DEPTH = 3;
+    
+    private static final Set<Material> HAZARDS = EnumSet.of(
+        Material.WATER, Material.LAVA, Material.FIRE, Material.SOUL_FIRE, Material.POWDER_SNOW,
+        Material.COBWEB, Material.SWEET_BERRY_BUSH, Material.WITHER_ROSE, Material.BUBBLE_COLUMN
+    );
+    
+    private static final Set<Material> UNSAFE_GROUND = EnumSet.of(
+        Material.MAGMA_BLOCK, Material.CACTUS, Material.CAMPFIRE, Material.SOUL_CAMPFIRE,
+        Material.POINTED_DRIPSTONE, Material.ICE
+    );
+    
+    private SpawnSampler() {
+    }
+    
+    /**
+     * Samples the spawn points within spread of the center.
+     * 
+     * @param chunks snapshots covering the area, taken with the max block Y heightmap; missing chunks get no spawns
+     * @param minY lowest allowed feet height
+     * @param maxY highest allowed feet height; the two blocks above it must exist in the world
+     * @param seed makes the pattern, and the order the points are handed out in, repeatable per arena
+     */
+    public static SpawnPool sample(int centerX, int centerZ, int spread, int spacing, int minY, int maxY, 
+                                   List<ChunkSnapshot> chunks, long seed) {
+        int width = 2 * spread + 1;
+        int originX = centerX - spread;
+        int originZ = centerZ - spread;
+        int[] feet = readFeetHeights(originX, originZ, width, minY, maxY, chunks);
+        
+        Random random = new Random(seed);
+        double cellSize = spacing / Math.sqrt(2);
+        int gridWidth = (int) Math.ceil(width / cellSize);
+        int[] grid = new int[gridWidth * gridWidth];
+        Arrays.fill(grid, -1);
+        
+        int[] pointX = new int[64];
+        int[] pointZ = new int[64];
+        int count = 0;
+        int[] active = new int[64];
+        int activeCount = 0;
+        int seedMisses = 0;
+        long minDistanceSquared = (long) spacing * spacing;
+        
+        while (activeCount > 0 || seedMisses < MAX_SEED_MISSES) {
+            int x;
+            int z;
+            int activeSlot = -1;
+            
+            if (activeCount == 0) {
+                x = random.nextInt(width);
+                z = random.nextInt(width);
+                if (feet[z * width + x] == NO_SPAWN || 
+                    !isFarEnough(x, z, pointX, pointZ, grid, gridWidth, cellSize, minDistanceSquared)) {
+                    seedMisses++;
+                    continue;
+                }
+                seedMisses = 0;
+            } else {
+                // Try the ring between one and two spacings around a random active point
+                activeSlot = random.nextInt(activeCount);
+                int from = active[activeSlot];
+                x = -1;
+                z = -1;
+                for (int attempt = 0; attempt < CANDIDATES_PER_POINT; attempt++) {
+                    double angle = random.nextDouble() * 2 * Math.PI;
+                    double distance = spacing * (1 + random.nextDouble());
+                    int candidateX = pointX[from] + (int) Math.round(Math.cos(angle) * distance);
+                    int candidateZ = pointZ[from] + (int) Math.round(Math.sin(angle) * distance);
+                    
+                    if (candidateX < 0 || candidateZ < 0 || candidateX >= width || candidateZ >= width) continue;
+                    if (feet[candidateZ * width + candidateX] == NO_SPAWN) continue;
+                    if (!isFarEnough(candidateX, candidateZ, pointX, pointZ, grid, gridWidth, cellSize, minDistanceSquared)) continue;
+                    
+                    x = candidateX;
+                    z = candidateZ;
+                    break;
+                }
+                
+                if (x < 0) {
+                    // Nothing fits around this point any more
+                    active[activeSlot] = active[--activeCount];
+                    continue;
+                }
+            }
+            
+            if (count == pointX.length) {
+                pointX = Arrays.copyOf(pointX, count * 2);
+                pointZ = Arrays.copyOf(pointZ, count * 2);
+            }
+            if (activeCount == active.length) {
+                active = Arrays.copyOf(active, activeCount * 2);
+            }
+            
+            pointX[count] = x;
+            pointZ[count] = z;
+            grid[(int) (z / cellSize) * gridWidth + (int) (x / cellSize)] = count;
+            active[activeCount++] = count;
+            count++;
+        }
+        
+        // Shuffle, so consecutive points are spread over the whole area rather than neighbours
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swapX = pointX[i];
+            int swapZ = pointZ[i];
+            pointX[i] = pointX[j];
+            pointZ[i] = pointZ[j];
+            pointX[j] = swapX;
+            pointZ[j] = swapZ;
+        }
+        
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        int[] zs = new int[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = originX + pointX[i];
+            ys[i] = feet[pointZ[i] * width + pointX[i]];
+            zs[i] = originZ + pointZ[i];
+        }
+        return new SpawnPool(xs, ys, zs, spread, spacing);
+    }
+    
+    /**
+     * Feet height of a player standing on every column of the area, or NO_SPAWN where it is unsafe
+     */
+    private static int[] readFeetHeights(int originX, int originZ, int width, int minY, int maxY, List<ChunkSnapshot> chunks) {
+        int[] feet = new int[width * width];
+        Arrays.fill(feet, NO_SPAWN);
+        
+        for (ChunkSnapshot chunk : chunks) {
+            int baseX = chunk.getX() << 4;
+            int baseZ = chunk.getZ() << 4;
+            
+            for (int localZ = 0; localZ < 16; localZ++) {
+                int z = baseZ + localZ - originZ;
+                if (z < 0 || z >= width) continue;
+                
+                for (int localX = 0; localX < 16; localX++) {
+                    int x = baseX + localX - originX;
+                    if (x < 0 || x >= width) continue;
+                    
+                    feet[z * width + x] = feetHeight(chunk, localX, localZ, minY, maxY);
+                }
+            }
+        }
+        return feet;
+    }
+    
+    private static int feetHeight(ChunkSnapshot chunk, int localX, int localZ, int minY, int maxY) {
+        int y = chunk.getHighestBlockYAt(localX, localZ);
+        if (y + 1 < minY) return NO_SPAWN;
+        
+        for (int depth = 0; depth < MAX_COVER_DEPTH && y >= minY && isPassable(chunk.getBlockType(localX, y, localZ)); depth++) {
+            y--;
+        }
+        if (y + 1 < minY || y + 1 > maxY) return NO_SPAWN;
+        
+        Material ground = chunk.getBlockType(localX, y, localZ);
+        if (!ground.isSolid() || UNSAFE_GROUND.contains(ground) || Tag.LEAVES.isTagged(ground)) return NO_SPAWN;
+        
+        // Room for the feet and the head
+        if (!isPassable(chunk.getBlockType(localX, y + 1, localZ)) || 
+            !isPassable(chunk.getBlockType(localX, y + 2, localZ))) return NO_SPAWN;
+        
+        return y + 1;
+    }
+    
+    private static boolean isPassable(Material material) {
+        return !material.isSolid() && !HAZARDS.contains(material);
+    }
+    
+    private static boolean isFarEnough(int x, int z, int[] pointX, int[] pointZ, int[] grid, int gridWidth, 
+                                       double cellSize, long minDistanceSquared) {
+        int cellX = (int) (x / cellSize);
+        int cellZ = (int) (z / cellSize);
+        
+        // A cell holds at most one point, and no point closer than the spacing is more than two cells away
+        for (int gz = Math.max(0, cellZ - 2); gz <= Math.min(gridWidth - 1, cellZ + 2); gz++) {
+            for (int gx = Math.max(0, cellX - 2); gx <= Math.min(gridWidth - 1, cellX + 2); gx++) {
+                int point = grid[gz * gridWidth + gx];
+                if (point < 0) continue;
+                
+                long dx = pointX[point] - x;
+                long dz = pointZ[point] - z;
+                if (dx * dx + dz * dz < minDistanceSquared) return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,153 @@
+package net.fliuxx.lavaRise.utils;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed timer wheel advanced one tick at a time by its owner's driver task.
+ * Scheduling and cancelling are O(1) and a tick only visits the timers of its own slot;
+ * timers further away than one turn of the wheel wait out the remaining rounds in their slot.
+ * Not thread-safe, meant to be used from the main thread only.
+ * 
+ * @author Fl1uxxNoob
+ */
+public class TimerWheel {
+    
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    
+    private final Task[] slots;
+    private final Logger logger;
+    private long tick;
+    
+    // Timers taken out of the current slot while they run, so cancelAll still reaches them
+    private Task processing;
+    private Task running;
+    
+    public TimerWheel(Logger logger) {
+        this.slots = new Task[WHEEL_SIZE];
+        this.logger = logger;
+    }
+    
+    /**
+     * Schedules a task to run after the delay, then every period ticks
+     * 
+     * @param delay ticks until the first run, at least one
+     * @param period ticks between runs, or 0 to run once
+     */
+    public Task schedule(Task task, long delay, long period) {
+        if (task.wheel != null) {
+            throw new IllegalStateException("Task is already scheduled");
+        }
+        
+        task.wheel = this;
+        task.period = period;
+        task.cancelled = false;
+        insert(task, Math.max(1, delay));
+        return task;
+    }
+    
+    public Task schedule(Runnable action, long delay, long period) {
+        return schedule(new Task() {
+            @Override
+            public void run() {
+                action.run();
+            }
+        }, delay, period);
+    }
+    
+    private void insert(Task task, long delay) {
+        int slot = (int) ((tick + delay) & WHEEL_MASK);
+        task.rounds = (delay - 1) >> WHEEL_BITS;
+        task.next = slots[slot];
+        slots[slot] = task;
+    }
+    
+    /**
+     * Moves the wheel one tick forward and runs the timers that are due
+     */
+    public void advance() {
+        int slot = (int) (++tick & WHEEL_MASK);
+        processing = slots[slot];
+        slots[slot] = null;
+        
+        while (processing != null) {
+            Task task = processing;
+            processing = task.next;
+            task.next = null;
+            
+            if (task.cancelled) {
+                task.wheel = null;
+                continue;
+            }
+            
+            if (task.rounds > 0) {
+                task.rounds--;
+                task.next = slots[slot];
+                slots[slot] = task;
+                continue;
+            }
+            
+            running = task;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Game timer " + task.getClass().getName() + " failed", e);
+            }
+            running = null;
+            
+            if (task.period > 0 && !task.cancelled) {
+                insert(task, task.period);
+            } else {
+                task.wheel = null;
+            }
+        }
+    }
+    
+    /**
+     * Cancels every timer, including the ones waiting behind a timer that is running right now
+     */
+    public void cancelAll() {
+        for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+            cancelChain(slots[slot]);
+            slots[slot] = null;
+        }
+        cancelChain(processing);
+        if (running != null) {
+            running.cancel();
+        }
+    }
+    
+    private static void cancelChain(Task task) {
+        while (task != null) {
+            task.cancelled = true;
+            task.wheel = null;
+            task = task.next;
+        }
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    /**
+     * A timer of the wheel. Like a BukkitRunnable, a task can cancel itself from run().
+     */
+    public abstract static class Task implements Runnable {
+        
+        private TimerWheel wheel;
+        private Task next;
+        private long period;
+        private long rounds;
+        private boolean cancelled;
+        
+        public void cancel() {
+            cancelled = true;
+        }
+        
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package net.fliuxx.lavaRise.utils;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Set;
+
+/**
+ * File-tree operations on world folders. Meant to run off the main thread.
+ * 
+ * @author Fl1uxxNoob
+ */
+public final class WorldFiles {
+    
+    // A copied uid.dat would clash with the template's world UUID, session.lock belongs to the running server
+    private static final Set<String> SKIPPED_FILES = Set.of("uid.dat", "session.lock");
+    
+    private WorldFiles() {
+    }
+    
+    /**
+     * Copies a world folder, replacing anything already at the target
+     * 
+     * @return the number of bytes copied
+     */
+    public static long copyWorld(Path source, Path target) throws IOException {
+        long[] copiedBytes = {0};
+        
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(directory)));
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (SKIPPED_FILES.contains(file.getFileName().toString())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                Files.copy(file, target.resolve(source.relativize(file)), 
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                copiedBytes[0] += attributes.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        
+        return copiedBytes[0];
+    }
+    
+    /**
+     * Deletes a folder and everything inside it. Does nothing when the folder does not exist.
+     */
+    public static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+            
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException exception) throws IOException {
+                if (exception != null) throw exception;
+                Files.delete(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}